@@ -3,8 +3,9 @@ import { useChat } from '../../context/ChatContext';
 import { FiSend, FiAlertCircle } from 'react-icons/fi';
 
 const GroupChatWindow = () => {
-  const { activeGroup, groupMessages, groupPermissions, sendGroupMessage, loading } = useChat();
+  const { activeGroup, groupMessages, groupPermissions, sendGroupMessage, loadOlderGroupMessages, loading } = useChat();
   const [messageText, setMessageText] = useState('');
+  const [hasOlder, setHasOlder] = useState(true);
   const messagesEndRef = useRef(null);
 
   const scrollToBottom = () => {
@@ -15,6 +16,10 @@ const GroupChatWindow = () => {
     scrollToBottom();
   }, [groupMessages]);
 
+  useEffect(() => {
+    setHasOlder(true);
+  }, [activeGroup]);
+
   const handleSendMessage = (e) => {
     e.preventDefault();
     if (messageText.trim() && groupPermissions.canPost) {
@@ -64,7 +69,19 @@ const GroupChatWindow = () => {
             No messages yet. Be the first to post!
           </div>
         ) : (
-          groupMessages.map((msg, index) => (
+          <>
+          {hasOlder && (
+            <div className="text-center">
+              <button
+                type="button"
+                onClick={async () => setHasOlder((await loadOlderGroupMessages()) > 0)}
+                className="text-sm text-primary-600 hover:underline"
+              >
+                Load older messages
+              </button>
+            </div>
+          )}
+          {groupMessages.map((msg, index) => (
             <div key={msg.id || index} className="flex flex-col">
               <div className="flex items-start gap-2">
                 <div className="flex-shrink-0 w-8 h-8 rounded-full bg-primary-600 flex items-center justify-center text-white text-sm font-semibold">
@@ -83,7 +100,8 @@ const GroupChatWindow = () => {
                 </div>
               </div>
             </div>
-          ))
+          ))}
+          </>
         )}
         <div ref={messagesEndRef} />
       </div>
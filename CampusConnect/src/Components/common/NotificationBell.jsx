@@ -55,7 +55,7 @@ const NotificationBell = () => {
   const handleNotificationClick = async (notification) => {
     if (!notification.isRead) {
       try {
-        await notificationService.markAsRead(notification.id);
+        await notificationService.markAsRead(notification.id, notification.broadcast);
         fetchUnreadCount();
         fetchRecentNotifications();
       } catch (error) {
@@ -102,7 +102,7 @@ const NotificationBell = () => {
             ) : (
               recentNotifications.map(notification => (
                 <div
-                  key={notification.id}
+                  key={`${notification.broadcast ? 'b' : 'n'}-${notification.id}`}
                   onClick={() => handleNotificationClick(notification)}
                   className={`p-4 border-b border-gray-100 hover:bg-gray-50 cursor-pointer ${
                     !notification.isRead ? 'bg-blue-50' : ''
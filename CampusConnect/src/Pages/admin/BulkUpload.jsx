@@ -9,6 +9,7 @@ const BulkUpload = () => {
   const [userType, setUserType] = useState('STUDENT');
   const [file, setFile] = useState(null);
   const [uploading, setUploading] = useState(false);
+  const [progress, setProgress] = useState(null);
   const [result, setResult] = useState(null);
   const navigate = useNavigate();
 
@@ -25,13 +26,14 @@ const BulkUpload = () => {
 
     setUploading(true);
     try {
-      const response = await userService.bulkUploadUsers(file, userType);
+      const response = await userService.bulkUploadUsers(file, userType, setProgress);
       setResult(response);
     } catch (error) {
       console.error('Upload error:', error);
       alert('Upload failed: ' + (error.response?.data?.message || error.message));
     } finally {
       setUploading(false);
+      setProgress(null);
     }
   };
 
@@ -158,7 +160,11 @@ const BulkUpload = () => {
                 className="btn-primary w-full disabled:opacity-50 disabled:cursor-not-allowed flex items-center justify-center"
               >
                 <FiUpload className="mr-2" />
-                {uploading ? 'Uploading...' : 'Upload Users'}
+                {uploading
+                  ? progress?.totalRows
+                    ? `Importing ${progress.processedRows} / ${progress.totalRows}...`
+                    : 'Uploading...'
+                  : 'Upload Users'}
               </button>
             </div>
           </div>
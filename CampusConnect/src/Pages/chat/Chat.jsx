@@ -7,7 +7,8 @@ import GroupChatWindow from '../../components/chat/GroupChatWindow';
 import { FiSend, FiMessageSquare, FiUsers } from 'react-icons/fi';
 
 const Chat = () => {
-  const { conversations, activeChat, messages, chatUsers, loading, selectChat, sendMessage, selectGroup } = useChat();
+  const { conversations, activeChat, messages, chatUsers, loading, selectChat, sendMessage, loadOlderMessages, selectGroup } = useChat();
+  const [hasOlder, setHasOlder] = useState(true);
   const [messageText, setMessageText] = useState('');
   const [showUserList, setShowUserList] = useState(false);
   const [activeTab, setActiveTab] = useState('direct'); // 'direct' or 'groups'
@@ -23,6 +24,10 @@ const Chat = () => {
     scrollToBottom();
   }, [messages]);
 
+  useEffect(() => {
+    setHasOlder(true);
+  }, [activeChat]);
+
   // Handle auto-selection of chat from URL params
   useEffect(() => {
     if (userIdParam && chatUsers.length > 0) {
@@ -170,7 +175,19 @@ const Chat = () => {
                             No messages yet. Start the conversation!
                           </div>
                         ) : (
-                          messages.map((msg, index) => {
+                          <>
+                          {hasOlder && (
+                            <div className="text-center">
+                              <button
+                                type="button"
+                                onClick={async () => setHasOlder((await loadOlderMessages()) > 0)}
+                                className="text-sm text-primary-600 hover:underline"
+                              >
+                                Load older messages
+                              </button>
+                            </div>
+                          )}
+                          {messages.map((msg, index) => {
                             const isOwn = msg.senderId !== activeChat.id;
                             return (
                               <div
@@ -191,7 +208,8 @@ const Chat = () => {
                                 </div>
                               </div>
                             );
-                          })
+                          })}
+                          </>
                         )}
                         <div ref={messagesEndRef} />
                       </div>
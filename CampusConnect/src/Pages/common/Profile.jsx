@@ -88,7 +88,7 @@ const Profile = () => {
   }
 
   const pictureUrl = profile?.profilePicture 
-    ? profileService.getProfilePictureUrl(profile.profilePicture)
+    ? profileService.getProfilePictureUrl(profile.profilePicture, 256)
     : null;
 
   return (
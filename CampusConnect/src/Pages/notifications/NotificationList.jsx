@@ -5,23 +5,27 @@ import { useNavigate } from 'react-router-dom';
 import { FiCheck, FiCheckCircle } from 'react-icons/fi';
 import { ROUTES } from '../../utils/constants';
 
+const PAGE_SIZE = 20;
+
 const NotificationList = () => {
   const navigate = useNavigate();
   const [notifications, setNotifications] = useState([]);
   const [loading, setLoading] = useState(true);
-  const [page, setPage] = useState(0);
-  const [totalPages, setTotalPages] = useState(0);
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [hasMore, setHasMore] = useState(false);
 
   useEffect(() => {
     fetchNotifications();
-  }, [page]);
+  }, []);
 
+  // Reloads from the newest notification, as many as are currently shown
   const fetchNotifications = async () => {
     try {
       setLoading(true);
-      const response = await notificationService.getNotifications(page, 20);
-      setNotifications(response.content);
-      setTotalPages(response.totalPages);
+      const size = Math.max(PAGE_SIZE, notifications.length);
+      const page = await notificationService.getNotifications(null, size);
+      setNotifications(page);
+      setHasMore(page.length === size);
     } catch (error) {
       console.error('Error fetching notifications:', error);
     } finally {
@@ -29,9 +33,22 @@ const NotificationList = () => {
     }
   };
 
-  const handleMarkAsRead = async (id) => {
+  const loadMore = async () => {
+    try {
+      setLoadingMore(true);
+      const page = await notificationService.getNotifications(notifications[notifications.length - 1], PAGE_SIZE);
+      setNotifications(current => [...current, ...page]);
+      setHasMore(page.length === PAGE_SIZE);
+    } catch (error) {
+      console.error('Error fetching notifications:', error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
+  const handleMarkAsRead = async (notification) => {
     try {
-      await notificationService.markAsRead(id);
+      await notificationService.markAsRead(notification.id, notification.broadcast);
       fetchNotifications();
     } catch (error) {
       console.error('Error marking as read:', error);
@@ -49,7 +66,7 @@ const NotificationList = () => {
 
   const handleNotificationClick = (notification) => {
     if (!notification.isRead) {
-      handleMarkAsRead(notification.id);
+      handleMarkAsRead(notification);
     }
     
     // Navigate to referenced content
@@ -87,7 +104,7 @@ const NotificationList = () => {
             <div className="bg-white rounded-lg shadow-md overflow-hidden">
               {notifications.map(notification => (
                 <div
-                  key={notification.id}
+                  key={`${notification.broadcast ? 'b' : 'n'}-${notification.id}`}
                   onClick={() => handleNotificationClick(notification)}
                   className={`p-4 border-b border-gray-100 hover:bg-gray-50 cursor-pointer transition-colors ${
                     !notification.isRead ? 'bg-blue-50' : ''
@@ -124,7 +141,7 @@ const NotificationList = () => {
                       <button
                         onClick={(e) => {
                           e.stopPropagation();
-                          handleMarkAsRead(notification.id);
+                          handleMarkAsRead(notification);
                         }}
                         className="ml-4 text-primary-600 hover:text-primary-700"
                         title="Mark as read"
@@ -139,24 +156,14 @@ const NotificationList = () => {
           )}
 
           {/* Pagination */}
-          {totalPages > 1 && (
-            <div className="mt-6 flex justify-center gap-2">
-              <button
-                onClick={() => setPage(p => Math.max(0, p - 1))}
-                disabled={page === 0}
-                className="btn-secondary disabled:opacity-50"
-              >
-                Previous
-              </button>
-              <span className="py-2 px-4">
-                Page {page + 1} of {totalPages}
-              </span>
+          {!loading && hasMore && (
+            <div className="mt-6 flex justify-center">
               <button
-                onClick={() => setPage(p => Math.min(totalPages - 1, p + 1))}
-                disabled={page >= totalPages - 1}
+                onClick={loadMore}
+                disabled={loadingMore}
                 className="btn-secondary disabled:opacity-50"
               >
-                Next
+                {loadingMore ? 'Loading...' : 'Load more'}
               </button>
             </div>
           )}
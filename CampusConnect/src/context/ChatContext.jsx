@@ -89,6 +89,19 @@ export const ChatProvider = ({ children }) => {
     }
   };
 
+  const loadOlderMessages = async () => {
+    if (!activeChat || messages.length === 0) return 0;
+
+    try {
+      const older = await chatService.getMessageHistory(activeChat.id, { before: messages[0].id });
+      setMessages(prev => [...older, ...prev]);
+      return older.length;
+    } catch (error) {
+      console.error('Error loading older messages:', error);
+      return 0;
+    }
+  };
+
   const sendMessage = (messageText) => {
     if (!activeChat || !messageText.trim()) return;
 
@@ -123,6 +136,23 @@ export const ChatProvider = ({ children }) => {
     }
   };
 
+  const loadOlderGroupMessages = async () => {
+    if (!activeGroup || groupMessages.length === 0) return 0;
+
+    try {
+      const older = await chatService.getGroupMessages(
+        activeGroup.departmentId,
+        activeGroup.chatType,
+        { before: groupMessages[0].id }
+      );
+      setGroupMessages(prev => [...older, ...prev]);
+      return older.length;
+    } catch (error) {
+      console.error('Error loading older group messages:', error);
+      return 0;
+    }
+  };
+
   const sendGroupMessage = (messageText) => {
     if (!activeGroup || !messageText.trim()) return;
 
@@ -141,6 +171,7 @@ export const ChatProvider = ({ children }) => {
     loading,
     selectChat,
     sendMessage,
+    loadOlderMessages,
     loadConversations,
     // Group chat
     activeGroup,
@@ -148,6 +179,7 @@ export const ChatProvider = ({ children }) => {
     groupPermissions,
     selectGroup,
     sendGroupMessage,
+    loadOlderGroupMessages,
   };
 
   return <ChatContext.Provider value={value}>{children}</ChatContext.Provider>;
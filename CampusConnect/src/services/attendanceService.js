@@ -53,12 +53,13 @@ export const attendanceService = {
         return response.data;
     },
 
-    // Download attendance report (Excel)
-    downloadReport: async (departmentId, startDate, endDate) => {
+    // Download attendance report ('xlsx' or 'csv')
+    downloadReport: async (departmentId, startDate, endDate, format = 'xlsx') => {
         const params = new URLSearchParams({
             departmentId: departmentId.toString(),
             startDate,
             endDate,
+            format,
         });
 
         const response = await axiosInstance.get(
@@ -103,6 +104,28 @@ export const attendanceService = {
         return response.data;
     },
 
+    // Download faculty attendance history ('xlsx' or 'csv')
+    downloadFacultyHistory: async (startDate, endDate, subject = null, format = 'xlsx') => {
+        const params = new URLSearchParams({
+            startDate,
+            endDate,
+            format,
+        });
+
+        if (subject) {
+            params.append('subject', subject);
+        }
+
+        const response = await axiosInstance.get(
+            `${API_ENDPOINTS.ATTENDANCE}/faculty/history/download?${params}`,
+            {
+                responseType: 'blob',
+            }
+        );
+
+        return response.data;
+    },
+
     // Delete attendance
     deleteAttendance: async (id) => {
         const response = await axiosInstance.delete(`${API_ENDPOINTS.ATTENDANCE}/${id}`);
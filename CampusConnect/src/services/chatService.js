@@ -8,9 +8,11 @@ export const chatService = {
         return response.data;
     },
 
-    // Get message history with a user
-    getMessageHistory: async (otherUserId) => {
-        const response = await axiosInstance.get(`${API_ENDPOINTS.CHAT}/messages/${otherUserId}`);
+    // Get message history with a user (latest page, or older than `before`)
+    getMessageHistory: async (otherUserId, { before, after, limit } = {}) => {
+        const response = await axiosInstance.get(`${API_ENDPOINTS.CHAT}/messages/${otherUserId}`, {
+            params: { before, after, limit },
+        });
         return response.data;
     },
 
@@ -26,10 +28,11 @@ export const chatService = {
         return response.data;
     },
 
-    // Get group messages
-    getGroupMessages: async (departmentId, chatType = 'DEPARTMENT_GROUP') => {
+    // Get group messages (latest page, or older than `before`)
+    getGroupMessages: async (departmentId, chatType = 'DEPARTMENT_GROUP', { before, after, limit } = {}) => {
         const response = await axiosInstance.get(
-            `${API_ENDPOINTS.CHAT}/groups/${departmentId}?chatType=${chatType}`
+            `${API_ENDPOINTS.CHAT}/groups/${departmentId}`,
+            { params: { chatType, before, after, limit } }
         );
         return response.data;
     },
@@ -49,4 +52,37 @@ export const chatService = {
         );
         return response.data;
     },
+
+    // Unread totals: { direct, groups: [{ departmentId, chatType, unreadCount, ... }] }
+    getUnreadCounts: async () => {
+        const response = await axiosInstance.get(`${API_ENDPOINTS.CHAT}/unread-counts`);
+        return response.data;
+    },
+
+    // Mark a group read up to a message's groupSeq (or entirely when omitted)
+    markGroupAsRead: async (departmentId, chatType = 'DEPARTMENT_GROUP', upTo = null) => {
+        const params = new URLSearchParams({ chatType });
+        if (upTo != null) {
+            params.append('upTo', upTo.toString());
+        }
+        await axiosInstance.post(`${API_ENDPOINTS.CHAT}/groups/${departmentId}/mark-read?${params}`);
+    },
+
+    // Search messages in the user's department groups and own conversations (paged, newest first)
+    searchMessages: async (query, page = 0, size = 20) => {
+        const response = await axiosInstance.get(`${API_ENDPOINTS.CHAT}/search`, {
+            params: { q: query, page, size },
+        });
+        return response.data;
+    },
+
+    // Join a department group (faculty joining starts monitoring it)
+    joinGroup: async (departmentId) => {
+        await axiosInstance.post(`${API_ENDPOINTS.CHAT}/groups/${departmentId}/join`);
+    },
+
+    // Leave a department group
+    leaveGroup: async (departmentId) => {
+        await axiosInstance.post(`${API_ENDPOINTS.CHAT}/groups/${departmentId}/leave`);
+    },
 };
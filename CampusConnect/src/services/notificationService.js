@@ -2,12 +2,16 @@ import axiosInstance from '../utils/axiosConfig';
 import { API_ENDPOINTS } from '../utils/constants';
 
 export const notificationService = {
-    // Get user notifications
-    getNotifications: async (page = 0, size = 10) => {
+    // Get user notifications, newest first; pass the last notification received to get the next page
+    getNotifications: async (after = null, size = 10) => {
         const params = new URLSearchParams({
-            page: page.toString(),
             size: size.toString(),
         });
+        if (after) {
+            params.append('before', after.createdAt);
+            params.append('beforeId', after.id.toString());
+            params.append('beforeBroadcast', after.broadcast ? 'true' : 'false');
+        }
 
         const response = await axiosInstance.get(`${API_ENDPOINTS.NOTIFICATIONS}?${params}`);
         return response.data;
@@ -25,9 +29,11 @@ export const notificationService = {
         return response.data;
     },
 
-    // Mark notification as read
-    markAsRead: async (id) => {
-        const response = await axiosInstance.put(`${API_ENDPOINTS.NOTIFICATIONS}/${id}/mark-read`);
+    // Mark notification as read (department broadcasts are flagged with broadcast=true)
+    markAsRead: async (id, broadcast = false) => {
+        const response = await axiosInstance.put(
+            `${API_ENDPOINTS.NOTIFICATIONS}/${id}/mark-read${broadcast ? '?broadcast=true' : ''}`
+        );
         return response.data;
     },
 
@@ -30,13 +30,14 @@ export const profileService = {
         return response.data;
     },
 
-    // Get profile picture URL
-    getProfilePictureUrl: (fileName) => {
+    // Get profile picture URL; pass a size in pixels to get a thumbnail instead of the original
+    getProfilePictureUrl: (fileName, size) => {
         if (!fileName) return null;
         // fileName already includes 'profile-pictures/' prefix from backend
         // Extract just the filename part after the slash
         const fileNameOnly = fileName.includes('/') ? fileName.split('/').pop() : fileName;
-        return `${axiosInstance.defaults.baseURL}/profile/picture/${fileNameOnly}`;
+        const url = `${axiosInstance.defaults.baseURL}/profile/picture/${fileNameOnly}`;
+        return size ? `${url}?size=${size}` : url;
     },
 };
 
@@ -59,8 +59,8 @@ export const userService = {
     return response.data;
   },
 
-  // Bulk upload users
-  bulkUploadUsers: async (file, userType) => {
+  // Bulk upload users (runs as a background job; polls until it finishes)
+  bulkUploadUsers: async (file, userType, onProgress) => {
     const formData = new FormData();
     formData.append('file', file);
     formData.append('userType', userType);
@@ -70,6 +70,18 @@ export const userService = {
         'Content-Type': 'multipart/form-data',
       },
     });
-    return response.data;
+
+    let status = response.data;
+    while (status.state !== 'COMPLETED' && status.state !== 'FAILED') {
+      onProgress?.(status);
+      await new Promise((resolve) => setTimeout(resolve, 1000));
+      const poll = await axiosInstance.get(`${API_ENDPOINTS.ADMIN.BULK_UPLOAD}/${status.jobId}`);
+      status = poll.data;
+    }
+
+    if (status.state === 'FAILED') {
+      throw new Error(status.message || 'Import failed');
+    }
+    return status.result;
   },
 };
@@ -33,8 +33,8 @@ class WebSocketService {
                 }
             },
             reconnectDelay: 5000,
-            heartbeatIncoming: 4000,
-            heartbeatOutgoing: 4000,
+            heartbeatIncoming: 10000,
+            heartbeatOutgoing: 10000,
             onConnect: () => {
                 console.log('Connected to WebSocket');
                 this.connected = true;
@@ -182,6 +182,31 @@ class WebSocketService {
         });
     }
 
+    // Presence and typing updates for a department, sent about once a second
+    subscribeToPresence(departmentId, callback) {
+        if (!this.client || !this.connected) return;
+
+        if (this.subscriptions[`presence_${departmentId}`]) {
+            this.subscriptions[`presence_${departmentId}`].unsubscribe();
+        }
+
+        this.subscriptions[`presence_${departmentId}`] = this.client.subscribe(
+            `/topic/department/${departmentId}/presence`,
+            (message) => callback(JSON.parse(message.body))
+        );
+    }
+
+    // Repeat while the user types (typing expires after a few seconds); pass
+    // either departmentId or receiverId
+    sendTyping({ departmentId = null, receiverId = null }, typing = true) {
+        if (!this.client || !this.connected) return;
+
+        this.client.publish({
+            destination: '/app/chat.typing',
+            body: JSON.stringify({ departmentId, receiverId, typing }),
+        });
+    }
+
     unsubscribeFromGroup(departmentId) {
         const sub = this.subscriptions[`group_${departmentId}`];
         if (sub) {
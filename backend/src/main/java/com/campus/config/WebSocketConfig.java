@@ -2,7 +2,15 @@ package com.campus.config;
 
 import com.campus.security.CustomUserDetailsService;
 import com.campus.security.JwtTokenProvider;
+import com.campus.security.StompPrincipal;
+import com.campus.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
@@ -10,29 +18,125 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 @Order(Ordered.HIGHEST_PRECEDENCE + 99)
 @RequiredArgsConstructor
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final JwtTokenProvider jwtTokenProvider;
     private final CustomUserDetailsService customUserDetailsService;
+    private final WebSocketSessionRegistry webSocketSessionRegistry;
+
+    /**
+     * Relay /topic and /queue to an external STOMP broker (RabbitMQ, Artemis)
+     * instead of the in-memory broker, so several backend nodes can share
+     * subscriptions. Needs reactor-netty on the classpath: build with
+     * {@code -Pbroker-relay}.
+     */
+    @Value("${app.websocket.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    @Value("${app.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${app.websocket.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${app.websocket.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${app.websocket.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    @Value("${app.websocket.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    /** Threads handling frames from clients (0 means two per processor). */
+    @Value("${app.websocket.inbound.threads:0}")
+    private int inboundThreads;
+
+    /** Frames waiting for an inbound thread; beyond this new frames are rejected. */
+    @Value("${app.websocket.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    /** Threads writing messages to client sessions (0 means two per processor). */
+    @Value("${app.websocket.outbound.threads:0}")
+    private int outboundThreads;
+
+    @Value("${app.websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    /** STOMP heart-beat interval, both directions; 0 disables heart-beats. */
+    @Value("${app.websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    /**
+     * A session whose pending sends exceed the buffer or stay blocked past
+     * the time limit belongs to a client that cannot keep up; it is closed
+     * rather than holding up the outbound threads.
+     */
+    @Value("${app.websocket.send-buffer-size-kb:512}")
+    private int sendBufferSizeKb;
+
+    @Value("${app.websocket.send-time-limit-ms:15000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.message-size-limit-kb:64}")
+    private int messageSizeLimitKb;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        // Enable simple in-memory broker for /topic and /queue destinations
-        registry.enableSimpleBroker("/topic", "/queue");
+        if (relayEnabled) {
+            StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatMs)
+                    // A message for a user connected to another node is rebroadcast
+                    // here and delivered by the node that holds the session
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    // Nodes share their connected users so /user destinations resolve cluster-wide
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+            log.info("Relaying STOMP destinations to broker at {}:{}", relayHost, relayPort);
+        } else {
+            // Enable simple in-memory broker for /topic and /queue destinations
+            registry.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[] {heartbeatMs, heartbeatMs})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
         
         // Set application destination prefix for @MessageMapping
         registry.setApplicationDestinationPrefixes("/app");
@@ -49,8 +153,32 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .withSockJS();
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeKb * 1024)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setMessageSizeLimit(messageSizeLimitKb * 1024)
+                .addDecoratorFactory(webSocketSessionRegistry);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        int threads = outboundThreads > 0 ? outboundThreads : Runtime.getRuntime().availableProcessors() * 2;
+        registration.taskExecutor()
+                .corePoolSize(threads)
+                .maxPoolSize(threads)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Handlers do database work on these threads, so they are sized for
+        // blocking I/O rather than CPU
+        int threads = inboundThreads > 0 ? inboundThreads : Runtime.getRuntime().availableProcessors() * 2;
+        registration.taskExecutor()
+                .corePoolSize(threads)
+                .maxPoolSize(threads)
+                .queueCapacity(inboundQueueCapacity);
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -61,14 +189,22 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                     String authHeader = accessor.getFirstNativeHeader("Authorization");
                     if (authHeader != null && authHeader.startsWith("Bearer ")) {
                         String token = authHeader.substring(7);
-                        if (jwtTokenProvider.validateToken(token)) {
-                            Long userId = jwtTokenProvider.getUserIdFromToken(token);
-                            UserDetails userDetails = customUserDetailsService.loadUserById(userId);
-                            UsernamePasswordAuthenticationToken auth =
-                                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                            accessor.setUser(auth);
+                        Claims claims = jwtTokenProvider.verify(token).orElse(null);
+                        if (claims != null) {
+                            Long userId = Long.parseLong(claims.getSubject());
+                            UserPrincipal userPrincipal = customUserDetailsService.loadUserById(userId);
+                            // Kept on the session and passed to every later frame's handler
+                            accessor.setUser(StompPrincipal.from(userPrincipal));
                         }
                     }
+                } else if (StompCommand.SEND.equals(accessor.getCommand())
+                        && accessor.getUser() instanceof StompPrincipal principal) {
+                    // Handlers see the current name, role and department, not the ones
+                    // from CONNECT; a cache hit, and fails for deactivated accounts
+                    StompPrincipal current = StompPrincipal.from(customUserDetailsService.loadUserById(principal.userId()));
+                    if (!current.equals(principal)) {
+                        accessor.setUser(current);
+                    }
                 }
                 return message;
             }
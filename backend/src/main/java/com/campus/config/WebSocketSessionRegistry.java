@@ -0,0 +1,90 @@
+package com.campus.config;
+
+import com.campus.event.UserChangedEvent;
+import com.campus.security.StompPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket sessions on this node by user, so they can be closed when the
+ * account changes. The principal attached on CONNECT fixes the user's
+ * role, department and subscriptions for the life of the session; closing
+ * makes the client reconnect with a fresh principal (it retries on its
+ * own). Other nodes pick the change up per frame once their principal
+ * cache entry expires.
+ */
+@Component
+@Slf4j
+public class WebSocketSessionRegistry implements WebSocketHandlerDecoratorFactory {
+    
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Long> userBySessionId = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> sessionIdsByUser = new ConcurrentHashMap<>();
+    
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+            
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                Long userId = userBySessionId.remove(session.getId());
+                if (userId != null) {
+                    sessionIdsByUser.computeIfPresent(userId, (id, ids) -> {
+                        ids.remove(session.getId());
+                        return ids.isEmpty() ? null : ids;
+                    });
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+    
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null && event.getUser() instanceof StompPrincipal principal) {
+            userBySessionId.put(sessionId, principal.userId());
+            sessionIdsByUser.computeIfAbsent(principal.userId(), id -> ConcurrentHashMap.newKeySet()).add(sessionId);
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        Set<String> ids = sessionIdsByUser.remove(event.getUserId());
+        if (ids == null) {
+            return;
+        }
+        for (String id : ids) {
+            WebSocketSession session = sessions.get(id);
+            if (session == null) {
+                continue;
+            }
+            try {
+                session.close(CloseStatus.SERVICE_RESTARTED);
+            } catch (IOException ex) {
+                log.debug("Could not close WebSocket session {} of user {}", id, event.getUserId(), ex);
+            }
+        }
+        log.debug("Closed {} WebSocket session(s) of changed user {}", ids.size(), event.getUserId());
+    }
+}
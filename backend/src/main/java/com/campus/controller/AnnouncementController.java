@@ -3,16 +3,14 @@ package com.campus.controller;
 import com.campus.dto.AnnouncementDTO;
 import com.campus.dto.CreateAnnouncementRequest;
 import com.campus.dto.PageResponse;
-import com.campus.model.User;
+import com.campus.security.UserPrincipal;
 import com.campus.service.AnnouncementService;
-import com.campus.service.FileStorageService;
-import com.campus.service.UserService;
+import com.campus.service.FileDownloadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -20,14 +18,15 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/announcements")
 @RequiredArgsConstructor
 public class AnnouncementController {
     
     private final AnnouncementService announcementService;
-    private final FileStorageService fileStorageService;
-    private final UserService userService;
+    private final FileDownloadService fileDownloadService;
     
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'FACULTY')")
@@ -83,33 +82,25 @@ public class AnnouncementController {
     }
     
     @GetMapping("/{id}/attachment")
-    public ResponseEntity<Resource> downloadAttachment(@PathVariable Long id) {
+    public void downloadAttachment(@PathVariable Long id, HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
         AnnouncementDTO announcement = announcementService.getAnnouncementById(id);
         
         if (announcement.getAttachmentUrl() == null) {
-            return ResponseEntity.notFound().build();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
         
-        String[] parts = announcement.getAttachmentUrl().split("/");
-        String fileName = parts[parts.length - 1];
-        String subFolder = parts[0];
-        
-        Resource resource = fileStorageService.loadFileAsResource(fileName, subFolder);
+        String attachmentUrl = announcement.getAttachmentUrl();
+        String fileName = attachmentUrl.substring(attachmentUrl.lastIndexOf('/') + 1);
         
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                .body(resource);
+        fileDownloadService.serve(attachmentUrl, fileName, null, false, FileDownloadService.REVALIDATE, request, response);
     }
     
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.getPrincipal() instanceof org.springframework.security.core.userdetails.UserDetails) {
-            org.springframework.security.core.userdetails.UserDetails userDetails = 
-                (org.springframework.security.core.userdetails.UserDetails) authentication.getPrincipal();
-            String email = userDetails.getUsername();
-            User user = userService.getCurrentUser(email);
-            return user.getId();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
         }
         throw new RuntimeException("User not authenticated");
     }
@@ -6,17 +6,24 @@ import com.campus.dto.AttendanceReportDTO;
 import com.campus.dto.MarkAttendanceRequest;
 import com.campus.model.Attendance;
 import com.campus.model.User;
+import com.campus.security.UserPrincipal;
+import com.campus.service.AttendanceExportService;
 import com.campus.service.AttendanceService;
 import com.campus.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -26,6 +33,7 @@ import java.util.List;
 public class AttendanceController {
     
     private final AttendanceService attendanceService;
+    private final AttendanceExportService attendanceExportService;
     private final UserService userService;
     
     @PostMapping("/mark")
@@ -118,6 +126,23 @@ public class AttendanceController {
         return ResponseEntity.ok(history);
     }
     
+    @GetMapping("/faculty/history/download")
+    @PreAuthorize("hasAnyRole('FACULTY', 'ADMIN')")
+    public void downloadFacultyHistory(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String subject,
+            @RequestParam(defaultValue = "xlsx") String format,
+            HttpServletResponse response
+    ) throws IOException {
+        Long facultyId = getCurrentUserId();
+        AttendanceExportService.Format exportFormat = AttendanceExportService.Format.from(format);
+        
+        prepareDownload(response, exportFormat, "attendance-history_" + startDate + "_" + endDate);
+        attendanceExportService.exportFacultyHistory(
+                facultyId, startDate, endDate, subject, exportFormat, response.getOutputStream());
+    }
+    
     @GetMapping("/report")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<AttendanceReportDTO>> getAttendanceReport(
@@ -129,25 +154,37 @@ public class AttendanceController {
         return ResponseEntity.ok(report);
     }
     
+    @GetMapping("/report/download")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void downloadAttendanceReport(
+            @RequestParam Long departmentId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "xlsx") String format,
+            HttpServletResponse response
+    ) throws IOException {
+        AttendanceExportService.Format exportFormat = AttendanceExportService.Format.from(format);
+        
+        prepareDownload(response, exportFormat,
+                "attendance-report_" + departmentId + "_" + startDate + "_" + endDate);
+        attendanceExportService.exportDepartment(
+                departmentId, startDate, endDate, exportFormat, response.getOutputStream());
+    }
+    
+    private void prepareDownload(HttpServletResponse response, AttendanceExportService.Format format, String baseName) {
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(baseName + "." + format.getExtension(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+    }
+    
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || authentication.getPrincipal() == null) {
-            throw new RuntimeException("User not authenticated");
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
         }
-        
-        String email;
-        Object principal = authentication.getPrincipal();
-        
-        if (principal instanceof String) {
-            email = (String) principal;
-        } else if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
-            email = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
-        } else {
-            throw new RuntimeException("Unknown principal type");
-        }
-        
-        User user = userService.getCurrentUser(email);
-        return user.getId();
+        throw new RuntimeException("User not authenticated");
     }
 }
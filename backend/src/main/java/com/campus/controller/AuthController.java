@@ -2,6 +2,7 @@ package com.campus.controller;
 
 import com.campus.dto.*;
 import com.campus.model.User;
+import com.campus.security.UserPrincipal;
 import com.campus.service.AuthService;
 import com.campus.service.UserService;
 import jakarta.validation.Valid;
@@ -62,25 +63,9 @@ public class AuthController {
     
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || authentication.getPrincipal() == null) {
-            throw new RuntimeException("User not authenticated");
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
         }
-        
-        String email;
-        Object principal = authentication.getPrincipal();
-        
-        // Handle both String (from JWT) and UserDetails
-        if (principal instanceof String) {
-            email = (String) principal;
-        } else if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
-            email = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
-        } else {
-            throw new RuntimeException("Unknown principal type: " + principal.getClass().getName());
-        }
-        
-        // Get user by email
-        User user = userService.getCurrentUser(email);
-        return user.getId();
+        throw new RuntimeException("User not authenticated");
     }
 }
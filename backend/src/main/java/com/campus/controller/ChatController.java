@@ -2,11 +2,16 @@ package com.campus.controller;
 
 import com.campus.dto.ChatMessageDTO;
 import com.campus.dto.ConversationDTO;
+import com.campus.dto.MarkGroupReadRequest;
 import com.campus.dto.SendGroupMessageRequest;
 import com.campus.dto.SendMessageRequest;
+import com.campus.dto.TypingRequest;
 import com.campus.model.User;
+import com.campus.security.StompPrincipal;
+import com.campus.security.UserPrincipal;
 import com.campus.service.ChatPermissionService;
 import com.campus.service.ChatService;
+import com.campus.service.PresenceService;
 import com.campus.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +22,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.util.List;
 
 @RestController
@@ -28,6 +34,7 @@ public class ChatController {
     private final ChatPermissionService chatPermissionService;
     private final UserService userService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceService presenceService;
     
     // --- REST Endpoints ---
     
@@ -46,9 +53,13 @@ public class ChatController {
     }
     
     @GetMapping("/messages/{otherUserId}")
-    public ResponseEntity<List<ChatMessageDTO>> getMessageHistory(@PathVariable Long otherUserId) {
+    public ResponseEntity<List<ChatMessageDTO>> getMessageHistory(
+            @PathVariable Long otherUserId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit) {
         Long userId = getCurrentUserId();
-        List<ChatMessageDTO> messages = chatService.getMessageHistory(userId, otherUserId);
+        List<ChatMessageDTO> messages = chatService.getMessageHistory(userId, otherUserId, before, after, limit);
         return ResponseEntity.ok(messages);
     }
     
@@ -62,7 +73,10 @@ public class ChatController {
     @GetMapping("/groups/{departmentId}")
     public ResponseEntity<List<ChatMessageDTO>> getGroupMessages(
             @PathVariable Long departmentId,
-            @RequestParam(defaultValue = "DEPARTMENT_GROUP") String chatType) {
+            @RequestParam(defaultValue = "DEPARTMENT_GROUP") String chatType,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit) {
         // Here we could add permission check if needed (though getGroupMessages calls repo directly)
         // Ideally checking if user belongs to dept
         // For now, relying on service logic or adding basic check:
@@ -78,7 +92,10 @@ public class ChatController {
         
         List<ChatMessageDTO> messages = chatService.getGroupMessages(
                 departmentId, 
-                com.campus.model.ChatMessage.ChatType.valueOf(chatType)
+                com.campus.model.ChatMessage.ChatType.valueOf(chatType),
+                before,
+                after,
+                limit
         );
         return ResponseEntity.ok(messages);
     }
@@ -86,11 +103,12 @@ public class ChatController {
     // --- WebSocket Endpoints ---
     
     @MessageMapping("/chat.sendMessage")
-    public void sendMessage(@Payload SendMessageRequest request) {
-        Long senderId = getCurrentUserId();
+    public void sendMessage(@Payload SendMessageRequest request, Principal principal) {
+        StompPrincipal sender = getStompPrincipal(principal);
+        Long senderId = sender.userId();
         
         // Save message
-        ChatMessageDTO savedMessage = chatService.saveMessage(request, senderId);
+        ChatMessageDTO savedMessage = chatService.saveMessage(request, sender);
         
         // Send to receiver via WebSocket
         messagingTemplate.convertAndSendToUser(
@@ -108,22 +126,30 @@ public class ChatController {
     }
     
     @MessageMapping("/chat.markAsRead")
-    public void markAsRead(@Payload Long otherUserId) {
-        Long userId = getCurrentUserId();
+    public void markAsRead(@Payload Long otherUserId, Principal principal) {
+        Long userId = getStompPrincipal(principal).userId();
         chatService.markMessagesAsRead(userId, otherUserId);
     }
     
+    @MessageMapping("/chat.markGroupAsRead")
+    public void markGroupAsRead(@Payload MarkGroupReadRequest request, Principal principal) {
+        StompPrincipal reader = getStompPrincipal(principal);
+        chatService.markMessagesAsRead(reader.userId(), reader.departmentId(), request.getDepartmentId(),
+                request.getChatType(), request.getUpToSeq());
+    }
+    
     @MessageMapping("/chat.sendGroupMessage")
-    public void sendGroupMessage(@Payload SendGroupMessageRequest request) {
-        Long senderId = getCurrentUserId();
+    public void sendGroupMessage(@Payload SendGroupMessageRequest request, Principal principal) {
+        StompPrincipal sender = getStompPrincipal(principal);
         
         // Validate permissions
-        if (!chatPermissionService.canPostInGroup(senderId, request.getChatType(), request.getDepartmentId())) {
+        if (!chatPermissionService.canPostInGroup(sender.role(), sender.departmentId(),
+                request.getChatType(), request.getDepartmentId())) {
             throw new RuntimeException("You do not have permission to post in this group");
         }
         
         // Save message
-        ChatMessageDTO savedMessage = chatService.saveGroupMessage(request, senderId);
+        ChatMessageDTO savedMessage = chatService.saveGroupMessage(request, sender);
         
         // Broadcast to department topic
         messagingTemplate.convertAndSend(
@@ -132,14 +158,24 @@ public class ChatController {
         );
     }
     
+    @MessageMapping("/chat.typing")
+    public void typing(@Payload TypingRequest request, Principal principal) {
+        // Held in memory and sent with the next presence tick
+        presenceService.typing(getStompPrincipal(principal), request);
+    }
+    
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.getPrincipal() instanceof org.springframework.security.core.userdetails.UserDetails) {
-            org.springframework.security.core.userdetails.UserDetails userDetails = 
-                (org.springframework.security.core.userdetails.UserDetails) authentication.getPrincipal();
-            String email = userDetails.getUsername();
-            User user = userService.getCurrentUser(email);
-            return user.getId();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
+        }
+        throw new RuntimeException("User not authenticated");
+    }
+    
+    // The session principal set on CONNECT; no lookup per frame
+    private StompPrincipal getStompPrincipal(Principal principal) {
+        if (principal instanceof StompPrincipal stompPrincipal) {
+            return stompPrincipal;
         }
         throw new RuntimeException("User not authenticated");
     }
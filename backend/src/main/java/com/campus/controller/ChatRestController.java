@@ -2,12 +2,17 @@ package com.campus.controller;
 
 import com.campus.dto.ChatMessageDTO;
 import com.campus.dto.ChatPermissionsDTO;
+import com.campus.dto.ChatSearchHitDTO;
 import com.campus.dto.ConversationDTO;
+import com.campus.dto.UnreadCountsDTO;
 import com.campus.dto.UserDTO;
 import com.campus.model.ChatMessage;
 import com.campus.model.User;
+import com.campus.security.UserPrincipal;
 import com.campus.service.ChatPermissionService;
+import com.campus.service.ChatSearchService;
 import com.campus.service.ChatService;
+import com.campus.service.PresenceService;
 import com.campus.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -26,6 +31,8 @@ public class ChatRestController {
     private final ChatService chatService;
     private final ChatPermissionService chatPermissionService;
     private final UserService userService;
+    private final PresenceService presenceService;
+    private final ChatSearchService chatSearchService;
     
     @GetMapping("/conversations")
     public ResponseEntity<List<ConversationDTO>> getConversations() {
@@ -35,12 +42,28 @@ public class ChatRestController {
     }
     
     @GetMapping("/messages/{otherUserId}")
-    public ResponseEntity<List<ChatMessageDTO>> getMessageHistory(@PathVariable Long otherUserId) {
+    public ResponseEntity<List<ChatMessageDTO>> getMessageHistory(
+            @PathVariable Long otherUserId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit) {
         Long userId = getCurrentUserId();
-        List<ChatMessageDTO> messages = chatService.getMessageHistory(userId, otherUserId);
+        List<ChatMessageDTO> messages = chatService.getMessageHistory(userId, otherUserId, before, after, limit);
         return ResponseEntity.ok(messages);
     }
     
+    // Messages containing every word of q, from the user's department groups and own conversations;
+    // pass the id of the last hit as before for the next page
+    @GetMapping("/search")
+    public ResponseEntity<List<ChatSearchHitDTO>> searchMessages(
+            @RequestParam String q,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        UserPrincipal principal = getCurrentPrincipal();
+        return ResponseEntity.ok(chatSearchService.search(principal.getId(), principal.getDepartmentId(), q, before, limit));
+    }
+    
     @GetMapping("/users")
     public ResponseEntity<List<UserDTO>> getChatUsers() {
         Long userId = getCurrentUserId();
@@ -63,10 +86,13 @@ public class ChatRestController {
     @GetMapping("/groups/{departmentId}")
     public ResponseEntity<List<ChatMessageDTO>> getGroupMessages(
             @PathVariable Long departmentId,
-            @RequestParam(defaultValue = "DEPARTMENT_GROUP") String chatType
+            @RequestParam(defaultValue = "DEPARTMENT_GROUP") String chatType,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit
     ) {
         ChatMessage.ChatType type = ChatMessage.ChatType.valueOf(chatType);
-        List<ChatMessageDTO> messages = chatService.getGroupMessages(departmentId, type);
+        List<ChatMessageDTO> messages = chatService.getGroupMessages(departmentId, type, before, after, limit);
         return ResponseEntity.ok(messages);
     }
     
@@ -79,13 +105,52 @@ public class ChatRestController {
         return ResponseEntity.ok(userDTOs);
     }
     
+    @PostMapping("/groups/{departmentId}/mark-read")
+    public ResponseEntity<Void> markGroupAsRead(
+            @PathVariable Long departmentId,
+            @RequestParam(defaultValue = "DEPARTMENT_GROUP") String chatType,
+            @RequestParam(required = false) Long upTo
+    ) {
+        UserPrincipal principal = getCurrentPrincipal();
+        chatService.markMessagesAsRead(principal.getId(), principal.getDepartmentId(), departmentId,
+                ChatMessage.ChatType.valueOf(chatType), upTo);
+        return ResponseEntity.ok().build();
+    }
+    
+    @GetMapping("/unread-counts")
+    public ResponseEntity<UnreadCountsDTO> getUnreadCounts() {
+        UserPrincipal principal = getCurrentPrincipal();
+        return ResponseEntity.ok(chatService.getUnreadCounts(principal.getId(), principal.getDepartmentId()));
+    }
+    
+    @PostMapping("/groups/{departmentId}/join")
+    public ResponseEntity<Void> joinGroup(@PathVariable Long departmentId) {
+        chatService.joinGroup(getCurrentUserId(), departmentId);
+        return ResponseEntity.ok().build();
+    }
+    
+    @PostMapping("/groups/{departmentId}/leave")
+    public ResponseEntity<Void> leaveGroup(@PathVariable Long departmentId) {
+        chatService.leaveGroup(getCurrentUserId(), departmentId);
+        return ResponseEntity.ok().build();
+    }
+    
+    // Users online in a department now; later changes arrive on /topic/department/{id}/presence
+    @GetMapping("/groups/{departmentId}/online")
+    public ResponseEntity<List<Long>> getOnlineUsers(@PathVariable Long departmentId) {
+        Long userId = getCurrentUserId();
+        if (!chatPermissionService.canReadGroup(userId, departmentId)) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(presenceService.getOnlineUsers(departmentId));
+    }
+    
     @GetMapping("/groups/{departmentId}/permissions")
     public ResponseEntity<ChatPermissionsDTO> getGroupPermissions(
             @PathVariable Long departmentId,
             @RequestParam(defaultValue = "DEPARTMENT_GROUP") String chatType
     ) {
         Long userId = getCurrentUserId();
-        User user = userService.getCurrentUser(userId);
         ChatMessage.ChatType type = ChatMessage.ChatType.valueOf(chatType);
         
         ChatPermissionsDTO permissions = new ChatPermissionsDTO();
@@ -98,13 +163,13 @@ public class ChatRestController {
     }
     
     private Long getCurrentUserId() {
+        return getCurrentPrincipal().getId();
+    }
+    
+    private UserPrincipal getCurrentPrincipal() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.getPrincipal() instanceof org.springframework.security.core.userdetails.UserDetails) {
-            org.springframework.security.core.userdetails.UserDetails userDetails = 
-                (org.springframework.security.core.userdetails.UserDetails) authentication.getPrincipal();
-            String email = userDetails.getUsername();
-            User user = userService.getCurrentUser(email);
-            return user.getId();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal;
         }
         throw new RuntimeException("User not authenticated");
     }
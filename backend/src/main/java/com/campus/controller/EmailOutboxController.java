@@ -0,0 +1,24 @@
+package com.campus.controller;
+
+import com.campus.dto.EmailOutboxStats;
+import com.campus.service.EmailOutboxDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/email-outbox")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class EmailOutboxController {
+    
+    private final EmailOutboxDispatcher emailOutboxDispatcher;
+    
+    @GetMapping("/stats")
+    public ResponseEntity<EmailOutboxStats> getStats() {
+        return ResponseEntity.ok(emailOutboxDispatcher.getStats());
+    }
+}
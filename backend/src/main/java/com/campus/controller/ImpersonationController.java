@@ -4,6 +4,7 @@ import com.campus.dto.LoginResponse;
 import com.campus.model.User;
 import com.campus.repository.UserRepository;
 import com.campus.security.JwtTokenProvider;
+import com.campus.security.UserPrincipal;
 import com.campus.service.UserService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -74,23 +75,10 @@ public class ImpersonationController {
     
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || authentication.getPrincipal() == null) {
-            throw new RuntimeException("User not authenticated");
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return userService.getCurrentUser(principal.getId());
         }
-        
-        String email;
-        Object principal = authentication.getPrincipal();
-        
-        if (principal instanceof String) {
-            email = (String) principal;
-        } else if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
-            email = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
-        } else {
-            throw new RuntimeException("Unknown principal type");
-        }
-        
-        return userService.getCurrentUser(email);
+        throw new RuntimeException("User not authenticated");
     }
     
     @Data
@@ -2,16 +2,16 @@ package com.campus.controller;
 
 import com.campus.dto.ApiResponse;
 import com.campus.dto.NotificationDTO;
-import com.campus.dto.PageResponse;
-import com.campus.model.User;
+import com.campus.security.UserPrincipal;
 import com.campus.service.NotificationService;
-import com.campus.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -20,54 +20,56 @@ import java.util.List;
 public class NotificationController {
     
     private final NotificationService notificationService;
-    private final UserService userService;
     
+    // Newest first; for the next page pass the createdAt, id and broadcast flag of the last notification
     @GetMapping
-    public ResponseEntity<PageResponse<NotificationDTO>> getUserNotifications(
-            @RequestParam(defaultValue = "0") int page,
+    public ResponseEntity<List<NotificationDTO>> getUserNotifications(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "false") boolean beforeBroadcast,
             @RequestParam(defaultValue = "10") int size
     ) {
-        Long userId = getCurrentUserId();
-        PageResponse<NotificationDTO> notifications = notificationService.getUserNotifications(userId, page, size);
+        UserPrincipal user = getCurrentUser();
+        List<NotificationDTO> notifications = notificationService.getUserNotifications(
+                user, before, beforeId, beforeBroadcast, size);
         return ResponseEntity.ok(notifications);
     }
     
     @GetMapping("/recent")
     public ResponseEntity<List<NotificationDTO>> getRecentNotifications() {
-        Long userId = getCurrentUserId();
-        List<NotificationDTO> notifications = notificationService.getRecentNotifications(userId);
+        UserPrincipal user = getCurrentUser();
+        List<NotificationDTO> notifications = notificationService.getRecentNotifications(user);
         return ResponseEntity.ok(notifications);
     }
     
     @GetMapping("/unread-count")
     public ResponseEntity<Long> getUnreadCount() {
-        Long userId = getCurrentUserId();
-        Long count = notificationService.getUnreadCount(userId);
+        UserPrincipal user = getCurrentUser();
+        Long count = notificationService.getUnreadCount(user);
         return ResponseEntity.ok(count);
     }
     
     @PutMapping("/{id}/mark-read")
-    public ResponseEntity<ApiResponse> markAsRead(@PathVariable Long id) {
-        Long userId = getCurrentUserId();
-        notificationService.markAsRead(id, userId);
+    public ResponseEntity<ApiResponse> markAsRead(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "false") boolean broadcast
+    ) {
+        UserPrincipal user = getCurrentUser();
+        notificationService.markAsRead(id, user, broadcast);
         return ResponseEntity.ok(new ApiResponse(true, "Notification marked as read"));
     }
     
     @PutMapping("/mark-all-read")
     public ResponseEntity<ApiResponse> markAllAsRead() {
-        Long userId = getCurrentUserId();
-        notificationService.markAllAsRead(userId);
+        UserPrincipal user = getCurrentUser();
+        notificationService.markAllAsRead(user);
         return ResponseEntity.ok(new ApiResponse(true, "All notifications marked as read"));
     }
     
-    private Long getCurrentUserId() {
+    private UserPrincipal getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.getPrincipal() instanceof org.springframework.security.core.userdetails.UserDetails) {
-            org.springframework.security.core.userdetails.UserDetails userDetails = 
-                (org.springframework.security.core.userdetails.UserDetails) authentication.getPrincipal();
-            String email = userDetails.getUsername();
-            User user = userService.getCurrentUser(email);
-            return user.getId();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal;
         }
         throw new RuntimeException("User not authenticated");
     }
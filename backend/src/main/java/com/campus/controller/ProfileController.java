@@ -1,13 +1,18 @@
 package com.campus.controller;
 
+import com.campus.event.UserChangedEvent;
+import com.campus.exception.CustomExceptions;
 import com.campus.model.User;
 import com.campus.repository.UserRepository;
+import com.campus.security.UserPrincipal;
+import com.campus.service.FileDownloadService;
 import com.campus.service.FileStorageService;
+import com.campus.service.ThumbnailService;
 import com.campus.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,8 +20,10 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/profile")
@@ -26,6 +33,9 @@ public class ProfileController {
     private final UserService userService;
     private final UserRepository userRepository;
     private final FileStorageService fileStorageService;
+    private final FileDownloadService fileDownloadService;
+    private final ThumbnailService thumbnailService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @GetMapping
     public ResponseEntity<Map<String, Object>> getProfile() {
@@ -62,6 +72,8 @@ public class ProfileController {
         if (updates.containsKey("name")) {
             user.setName(updates.get("name"));
             userRepository.save(user);
+            // Cached principals and open chat sessions carry the display name
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
         }
         
         Map<String, Object> response = new HashMap<>();
@@ -88,6 +100,7 @@ public class ProfileController {
         String fileName = fileStorageService.storeFile(file, "profile-pictures");
         user.setProfilePicture(fileName);
         userRepository.save(user);
+        thumbnailService.generateAsync(fileName);
         
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Profile picture uploaded successfully");
@@ -117,34 +130,47 @@ public class ProfileController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Serve a profile picture, or with {@code size} the smallest thumbnail
+     * at least that many pixels wide. Picture names never change content,
+     * so responses are cacheable forever; the original is served with
+     * revalidation while a requested thumbnail is still being generated.
+     *
+     * Stored files are shared by content, so a name is only served while it
+     * is some user's current picture; other uploads stay behind their own
+     * authenticated endpoints.
+     */
     @GetMapping("/picture/{fileName:.+}")
-    public ResponseEntity<Resource> getProfilePicture(@PathVariable String fileName) {
-        Resource resource = fileStorageService.loadFileAsResource(fileName, "profile-pictures");
+    public void getProfilePicture(
+            @PathVariable String fileName,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        String reference = "profile-pictures/" + fileName;
+        if (!userRepository.existsByProfilePicture(reference)) {
+            throw new CustomExceptions.UserNotFoundException("File not found " + reference);
+        }
+        String cacheControl = FileDownloadService.IMMUTABLE;
+        
+        if (size != null) {
+            Optional<String> thumbnail = thumbnailService.thumbnailFor(reference, size);
+            if (thumbnail.isPresent()) {
+                reference = thumbnail.get();
+            } else {
+                cacheControl = FileDownloadService.REVALIDATE;
+            }
+        }
         
-        return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
-                .body(resource);
+        String name = reference.substring(reference.lastIndexOf('/') + 1);
+        fileDownloadService.serve(reference, name, null, true, cacheControl, request, response);
     }
     
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || authentication.getPrincipal() == null) {
-            throw new RuntimeException("User not authenticated");
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return userService.getCurrentUser(principal.getId());
         }
-        
-        String email;
-        Object principal = authentication.getPrincipal();
-        
-        if (principal instanceof String) {
-            email = (String) principal;
-        } else if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
-            email = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
-        } else {
-            throw new RuntimeException("Unknown principal type");
-        }
-        
-        return userService.getCurrentUser(email);
+        throw new RuntimeException("User not authenticated");
     }
 }
@@ -3,12 +3,13 @@ package com.campus.controller;
 import com.campus.dto.StudyMaterialDTO;
 import com.campus.dto.UploadMaterialRequest;
 import com.campus.model.User;
+import com.campus.security.UserPrincipal;
 import com.campus.service.StudyMaterialService;
 import com.campus.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -17,6 +18,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -70,16 +72,9 @@ public class StudyMaterialController {
     }
     
     @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> downloadMaterial(@PathVariable Long id) {
-        Resource resource = studyMaterialService.downloadMaterial(id);
-        
-        StudyMaterialDTO material = studyMaterialService.getMaterialById(id);
-        
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, 
-                        "attachment; filename=\"" + material.getFileName() + "\"")
-                .body(resource);
+    public void downloadMaterial(@PathVariable Long id, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        studyMaterialService.downloadMaterial(id, request, response);
     }
     
     @GetMapping("/search")
@@ -126,23 +121,9 @@ public class StudyMaterialController {
     
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || authentication.getPrincipal() == null) {
-            throw new RuntimeException("User not authenticated");
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
         }
-        
-        String email;
-        Object principal = authentication.getPrincipal();
-        
-        if (principal instanceof String) {
-            email = (String) principal;
-        } else if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
-            email = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
-        } else {
-            throw new RuntimeException("Unknown principal type");
-        }
-        
-        User user = userService.getCurrentUser(email);
-        return user.getId();
+        throw new RuntimeException("User not authenticated");
     }
 }
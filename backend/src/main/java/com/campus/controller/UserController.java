@@ -1,12 +1,12 @@
 package com.campus.controller;
 
-import com.campus.dto.BulkUploadResponse;
 import com.campus.dto.CreateUserRequest;
+import com.campus.dto.ImportJobStatus;
 import com.campus.dto.PageResponse;
 import com.campus.dto.UpdateUserRequest;
 import com.campus.dto.UserDTO;
 import com.campus.model.User;
-import com.campus.service.ExcelService;
+import com.campus.service.UserImportService;
 import com.campus.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -23,7 +23,7 @@ import org.springframework.web.multipart.MultipartFile;
 public class UserController {
     
     private final UserService userService;
-    private final ExcelService excelService;
+    private final UserImportService userImportService;
     
     @GetMapping
     public ResponseEntity<PageResponse<UserDTO>> getAllUsers(
@@ -72,21 +72,26 @@ public class UserController {
     
     
     @PostMapping("/bulk-upload")
-    public ResponseEntity<BulkUploadResponse> bulkUpload(
+    public ResponseEntity<ImportJobStatus> bulkUpload(
             @RequestParam("file") MultipartFile file,
             @RequestParam("userType") String userType
     ) {
-        BulkUploadResponse response;
+        User.Role role;
         
         if ("STUDENT".equalsIgnoreCase(userType)) {
-            response = excelService.processStudentExcel(file);
+            role = User.Role.STUDENT;
         } else if ("FACULTY".equalsIgnoreCase(userType)) {
-            response = excelService.processFacultyExcel(file);
+            role = User.Role.FACULTY;
         } else {
             throw new IllegalArgumentException("Invalid user type. Must be STUDENT or FACULTY");
         }
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(userImportService.submit(file, role));
+    }
+    
+    @GetMapping("/bulk-upload/{jobId}")
+    public ResponseEntity<ImportJobStatus> getBulkUploadStatus(@PathVariable String jobId) {
+        return ResponseEntity.ok(userImportService.getStatus(jobId));
     }
     
     @GetMapping("/department/{departmentId}")
@@ -0,0 +1,25 @@
+package com.campus.dto;
+
+import com.campus.model.Attendance;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * One attendance record as written to CSV and Excel exports. Built directly
+ * by JPQL constructor expressions so exports never load entities.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceExportRow {
+    private LocalDate date;
+    private String rollNumber;
+    private String studentName;
+    private String subject;
+    private Attendance.AttendanceStatus status;
+    private String remarks;
+    private String markedByName;
+}
@@ -19,4 +19,5 @@ public class ChatMessageDTO {
     private String message;
     private Boolean isRead;
     private LocalDateTime createdAt;
+    private Long groupSeq;
 }
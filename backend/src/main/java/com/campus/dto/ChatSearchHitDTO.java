@@ -0,0 +1,28 @@
+package com.campus.dto;
+
+import com.campus.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chat message matching a search, with the conversation it belongs to.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSearchHitDTO {
+    
+    private Long id;
+    private ChatMessage.ChatType chatType;
+    private Long departmentId;
+    private Long senderId;
+    private String senderName;
+    private Long receiverId;
+    private String receiverName;
+    private String message;
+    private LocalDateTime createdAt;
+    private Long groupSeq;
+}
@@ -1,5 +1,6 @@
 package com.campus.dto;
 
+import com.campus.model.User;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,4 +19,10 @@ public class ConversationDTO {
     private String lastMessage;
     private Integer unreadCount;
     private LocalDateTime updatedAt;
+    
+    public ConversationDTO(Long id, Long otherUserId, String otherUserName, User.Role otherUserRole,
+                           String lastMessage, Integer unreadCount, LocalDateTime updatedAt) {
+        this(id, otherUserId, otherUserName, otherUserRole.toString(),
+                lastMessage != null ? lastMessage : "", unreadCount, updatedAt);
+    }
 }
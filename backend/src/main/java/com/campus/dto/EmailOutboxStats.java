@@ -0,0 +1,21 @@
+package com.campus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutboxStats {
+    private long pending;
+    private long failed;
+    private Long oldestPendingAgeSeconds;
+    private long sentSinceStartup;
+    private long retriesSinceStartup;
+    private Long averageDeliveryLatencyMs;
+    private Long lastBatchDurationMs;
+    private LocalDateTime lastRunAt;
+}
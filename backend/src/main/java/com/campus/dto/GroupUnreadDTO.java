@@ -0,0 +1,18 @@
+package com.campus.dto;
+
+import com.campus.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupUnreadDTO {
+    
+    private Long departmentId;
+    private ChatMessage.ChatType chatType;
+    private Long lastSeq;
+    private Long lastReadSeq;
+    private Long unreadCount;
+}
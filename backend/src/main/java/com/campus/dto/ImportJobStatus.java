@@ -0,0 +1,22 @@
+package com.campus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobStatus {
+    private String jobId;
+    private String userType;
+    private String state;
+    private int totalRows;
+    private int processedRows;
+    private String message;
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+    private BulkUploadResponse result;
+}
@@ -0,0 +1,22 @@
+package com.campus.dto;
+
+import com.campus.model.ChatMessage;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarkGroupReadRequest {
+    
+    @NotNull(message = "Department ID is required")
+    private Long departmentId;
+    
+    @NotNull(message = "Chat type is required")
+    private ChatMessage.ChatType chatType;
+    
+    // groupSeq of the last message seen; null marks the whole group read
+    private Long upToSeq;
+}
@@ -19,4 +19,5 @@ public class NotificationDTO {
     private Long referenceId;
     private Boolean isRead;
     private LocalDateTime createdAt;
+    private Boolean broadcast;
 }
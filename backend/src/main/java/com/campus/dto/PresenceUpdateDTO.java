@@ -0,0 +1,28 @@
+package com.campus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Presence and typing changes since the previous tick, as user ids.
+ * departmentId is null for one-to-one typing sent to a user queue.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceUpdateDTO {
+    
+    private Long departmentId;
+    private List<Long> online = new ArrayList<>();
+    private List<Long> offline = new ArrayList<>();
+    private List<Long> typing = new ArrayList<>();
+    private List<Long> stoppedTyping = new ArrayList<>();
+    
+    public PresenceUpdateDTO(Long departmentId) {
+        this.departmentId = departmentId;
+    }
+}
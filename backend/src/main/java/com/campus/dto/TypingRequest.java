@@ -0,0 +1,20 @@
+package com.campus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Typing signal from a chat client: set either departmentId (group chat)
+ * or receiverId (one-to-one). Clients repeat typing=true while the user
+ * keeps typing and send typing=false when they stop or send.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingRequest {
+    
+    private Long departmentId;
+    private Long receiverId;
+    private boolean typing;
+}
@@ -0,0 +1,20 @@
+package com.campus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Unread totals for chat badges: one-to-one messages across all
+ * conversations, and each group chat of the user's department.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountsDTO {
+    
+    private Long direct;
+    private List<GroupUnreadDTO> groups;
+}
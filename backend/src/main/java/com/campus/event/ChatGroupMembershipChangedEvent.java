@@ -0,0 +1,15 @@
+package com.campus.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when a user joins or leaves a department group chat.
+ */
+@Data
+@AllArgsConstructor
+public class ChatGroupMembershipChangedEvent {
+    
+    private Long userId;
+    private Long departmentId;
+}
@@ -0,0 +1,16 @@
+package com.campus.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when a user's account is created or changes (role, department,
+ * active flag, display name, ...). Listeners holding per-user state should
+ * drop it.
+ */
+@Data
+@AllArgsConstructor
+public class UserChangedEvent {
+    
+    private Long userId;
+}
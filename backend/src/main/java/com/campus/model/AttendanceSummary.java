@@ -0,0 +1,46 @@
+package com.campus.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Attendance counts per student, subject and calendar month, kept in step
+ * with the attendance table by AttendanceSummaryService.
+ */
+@Entity
+@Table(name = "attendance_monthly_summary", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_attendance_summary", columnNames = {"student_id", "subject", "month_start"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceSummary {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+    
+    // Empty string for attendance without a subject, so the unique key applies
+    @Column(nullable = false, length = 255)
+    private String subject;
+    
+    // First day of the month
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+    
+    @Column(name = "present_count", nullable = false)
+    private Long presentCount;
+    
+    @Column(name = "absent_count", nullable = false)
+    private Long absentCount;
+    
+    @Column(name = "late_count", nullable = false)
+    private Long lateCount;
+}
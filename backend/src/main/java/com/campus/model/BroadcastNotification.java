@@ -0,0 +1,56 @@
+package com.campus.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A department-wide notification stored once and merged into each member's
+ * notification list at read time.
+ */
+@Entity
+@Table(name = "broadcast_notifications", indexes = {
+    @Index(name = "idx_broadcast_dept_id", columnList = "department_id, id"),
+    @Index(name = "idx_broadcast_dept_created", columnList = "department_id, created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastNotification {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "department_id", nullable = false)
+    private Long departmentId;
+    
+    // Null targets every role in the department
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_role", length = 20)
+    private User.Role targetRole;
+    
+    @Column(nullable = false, length = 500)
+    private String title;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String message;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Notification.NotificationType type;
+    
+    @Column(name = "reference_id")
+    private Long referenceId;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
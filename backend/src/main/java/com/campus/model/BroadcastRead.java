@@ -0,0 +1,35 @@
+package com.campus.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single broadcast read above the user's watermark. Rows at or below the
+ * watermark are redundant and removed when the watermark moves.
+ */
+@Entity
+@Table(name = "broadcast_reads", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_id", "broadcast_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastRead {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "broadcast_id", nullable = false)
+    private Long broadcastId;
+    
+    public BroadcastRead(Long userId, Long broadcastId) {
+        this.userId = userId;
+        this.broadcastId = broadcastId;
+    }
+}
@@ -0,0 +1,36 @@
+package com.campus.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How far a user has read in a group chat, as a group sequence number.
+ */
+@Entity
+@Table(name = "chat_group_reads", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_chat_group_read", columnNames = {"user_id", "department_id", "chat_type"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatGroupRead {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "department_id", nullable = false)
+    private Long departmentId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "chat_type", nullable = false)
+    private ChatMessage.ChatType chatType;
+    
+    @Column(name = "last_read_seq", nullable = false)
+    private Long lastReadSeq;
+}
@@ -0,0 +1,35 @@
+package com.campus.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last sequence number given to a message in a group chat. Each group
+ * message takes the next number, so a reader's unread count is the
+ * difference between this and their watermark in {@link ChatGroupRead}.
+ */
+@Entity
+@Table(name = "chat_group_sequences", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_chat_group_sequence", columnNames = {"department_id", "chat_type"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatGroupSequence {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "department_id", nullable = false)
+    private Long departmentId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "chat_type", nullable = false)
+    private ChatMessage.ChatType chatType;
+    
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+}
@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+    @Index(name = "idx_chat_sender_receiver_id", columnList = "sender_id, receiver_id, id"),
+    @Index(name = "idx_chat_dept_type_id", columnList = "department_id, chat_type, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -40,9 +43,14 @@ public class ChatMessage {
     @Column(name = "attachment_url", length = 500)
     private String attachmentUrl;
     
+    // One-to-one messages only; groups track reads per user in ChatGroupRead
     @Column(name = "is_read", nullable = false)
     private Boolean isRead = false;
     
+    // Position within its group chat (see ChatGroupSequence); null for one-to-one messages
+    @Column(name = "group_seq")
+    private Long groupSeq;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_participants")
+@Table(name = "chat_participants", uniqueConstraints = {
+    // One row per user and group chat; one-to-one rows have no department
+    @UniqueConstraint(name = "uk_chat_group_member", columnNames = {"user_id", "chat_type", "department_id"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
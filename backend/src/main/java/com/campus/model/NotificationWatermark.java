@@ -0,0 +1,44 @@
+package com.campus.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-user read position in the broadcast stream: every broadcast with an id
+ * at or below {@code lastReadBroadcastId} counts as read.
+ */
+@Entity
+@Table(name = "notification_watermarks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationWatermark {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "last_read_broadcast_id", nullable = false)
+    private Long lastReadBroadcastId = 0L;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+        if (lastReadBroadcastId == null) {
+            lastReadBroadcastId = 0L;
+        }
+    }
+    
+    public NotificationWatermark(Long userId) {
+        this.userId = userId;
+        this.lastReadBroadcastId = 0L;
+    }
+}
@@ -10,7 +10,14 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_user_name", columnList = "name"),
+    @Index(name = "idx_user_roll_number", columnList = "roll_number"),
+    @Index(name = "idx_user_role_created", columnList = "role, created_at"),
+    @Index(name = "idx_user_dept_created", columnList = "department_id, created_at"),
+    @Index(name = "idx_user_profile_picture", columnList = "profile_picture"),
+    @Index(name = "idx_user_updated", columnList = "updated_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -1,35 +1,64 @@
 package com.campus.repository;
 
+import com.campus.dto.AttendanceDTO;
+import com.campus.dto.AttendanceExportRow;
 import com.campus.model.Attendance;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
+public interface AttendanceRepository extends JpaRepository<Attendance, Long>, AttendanceRepositoryCustom {
+    
+    /**
+     * Fetch size that makes MySQL Connector/J stream rows one at a time
+     * instead of buffering the whole result set.
+     */
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+    
+    /**
+     * Select list for {@link AttendanceDTO}, reading student and marker
+     * columns through joins on {@code u} and {@code m} so no association is
+     * loaded lazily afterwards.
+     */
+    String DTO_SELECT = "SELECT new com.campus.dto.AttendanceDTO(a.id, u.id, u.name, u.rollNumber, m.id, m.name, " +
+            "a.date, a.status, a.subject, a.remarks, a.createdAt) " +
+            "FROM Attendance a JOIN a.student u JOIN a.markedBy m ";
     
     // Find attendance by date
     List<Attendance> findByDate(LocalDate date);
     
-    // Find attendance by date and department
-    @Query("SELECT a FROM Attendance a WHERE a.date = :date AND a.student.department.id = :departmentId")
-    List<Attendance> findByDateAndDepartment(@Param("date") LocalDate date, @Param("departmentId") Long departmentId);
+    // Attendance by date and department
+    @Query(DTO_SELECT + "WHERE a.date = :date AND u.department.id = :departmentId")
+    List<AttendanceDTO> findDTOsByDateAndDepartment(@Param("date") LocalDate date, @Param("departmentId") Long departmentId);
     
-    // Find student attendance in date range
-    @Query("SELECT a FROM Attendance a WHERE a.student.id = :studentId AND a.date BETWEEN :from AND :to ORDER BY a.date DESC")
-    List<Attendance> findByStudentIdAndDateBetween(
+    // Student attendance in date range
+    @Query(DTO_SELECT + "WHERE u.id = :studentId AND a.date BETWEEN :from AND :to ORDER BY a.date DESC")
+    List<AttendanceDTO> findDTOsByStudentIdAndDateBetween(
         @Param("studentId") Long studentId,
         @Param("from") LocalDate from,
         @Param("to") LocalDate to
     );
     
-    // Find all student attendance
-    List<Attendance> findByStudentIdOrderByDateDesc(Long studentId);
+    // All student attendance
+    @Query(DTO_SELECT + "WHERE u.id = :studentId ORDER BY a.date DESC")
+    List<AttendanceDTO> findDTOsByStudentId(@Param("studentId") Long studentId);
+    
+    // Single record with student and marker, for updates that return a DTO
+    @EntityGraph(attributePaths = {"student", "markedBy"})
+    @Query("SELECT a FROM Attendance a WHERE a.id = :id")
+    Optional<Attendance> findWithUsersById(@Param("id") Long id);
     
     // Count by student and status
     @Query("SELECT COUNT(a) FROM Attendance a WHERE a.student.id = :studentId AND a.status = :status")
@@ -38,32 +67,77 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
     // Check if attendance exists
     boolean existsByStudentIdAndDateAndSubject(Long studentId, LocalDate date, String subject);
     
+    // Students in the roster that already have attendance for this date and subject (a null subject matches null)
+    @Query("SELECT a.student.id FROM Attendance a WHERE a.date = :date " +
+           "AND (a.subject = :subject OR (:subject IS NULL AND a.subject IS NULL)) AND a.student.id IN :studentIds")
+    List<Long> findMarkedStudentIds(
+        @Param("date") LocalDate date,
+        @Param("subject") String subject,
+        @Param("studentIds") Collection<Long> studentIds
+    );
+    
     
     // Find by student, date, and subject
     Optional<Attendance> findByStudentIdAndDateAndSubject(Long studentId, LocalDate date, String subject);
     
-    // Find attendance by department and date range for reports
-    @Query("SELECT a FROM Attendance a WHERE a.student.department.id = :departmentId AND a.date BETWEEN :startDate AND :endDate ORDER BY a.student.rollNumber, a.subject, a.date")
-    List<Attendance> findByDepartmentAndDateBetween(
+    // Status counts per class (date and subject) marked by a faculty member,
+    // optionally for one subject: date, subject, status, count
+    @Query("SELECT a.date, a.subject, a.status, COUNT(a) FROM Attendance a " +
+           "WHERE a.markedBy.id = :facultyId AND a.date BETWEEN :from AND :to " +
+           "AND (:subject IS NULL OR a.subject = :subject) " +
+           "GROUP BY a.date, a.subject, a.status ORDER BY a.date DESC, a.subject")
+    List<Object[]> countByStatusForFaculty(
+        @Param("facultyId") Long facultyId,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to,
+        @Param("subject") String subject
+    );
+    
+    // Status counts for one student in a date range: status, count
+    @Query("SELECT a.status, COUNT(a) FROM Attendance a WHERE a.student.id = :studentId " +
+           "AND a.date BETWEEN :from AND :to GROUP BY a.status")
+    List<Object[]> countByStatusForStudent(
+        @Param("studentId") Long studentId,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to
+    );
+    
+    // Status counts per student and subject for a department in a date range:
+    // student id, roll number, name, subject, status, count
+    @Query("SELECT u.id, u.rollNumber, u.name, a.subject, a.status, COUNT(a) FROM Attendance a JOIN a.student u " +
+           "WHERE u.department.id = :departmentId AND a.date BETWEEN :from AND :to " +
+           "GROUP BY u.id, u.rollNumber, u.name, a.subject, a.status")
+    List<Object[]> countByStatusForDepartment(
         @Param("departmentId") Long departmentId,
-        @Param("startDate") LocalDate startDate,
-        @Param("endDate") LocalDate endDate
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to
     );
     
-    // Find attendance marked by a specific faculty in date range
-    @Query("SELECT a FROM Attendance a WHERE a.markedBy.id = :facultyId AND a.date BETWEEN :startDate AND :endDate ORDER BY a.date DESC, a.subject")
-    List<Attendance> findByMarkedByIdAndDateBetween(
-        @Param("facultyId") Long facultyId,
-        @Param("startDate") LocalDate startDate,
-        @Param("endDate") LocalDate endDate
+    // Every record for a department in a date range, for exports. Must be
+    // consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query("SELECT new com.campus.dto.AttendanceExportRow(a.date, u.rollNumber, u.name, a.subject, a.status, a.remarks, m.name) " +
+           "FROM Attendance a JOIN a.student u JOIN a.markedBy m " +
+           "WHERE u.department.id = :departmentId AND a.date BETWEEN :from AND :to " +
+           "ORDER BY u.rollNumber, a.subject, a.date")
+    Stream<AttendanceExportRow> streamForDepartment(
+        @Param("departmentId") Long departmentId,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to
     );
     
-    // Find attendance marked by faculty for a specific subject
-    @Query("SELECT a FROM Attendance a WHERE a.markedBy.id = :facultyId AND a.date BETWEEN :startDate AND :endDate AND a.subject = :subject ORDER BY a.date DESC")
-    List<Attendance> findByMarkedByIdAndDateBetweenAndSubject(
+    // Every record marked by a faculty member in a date range, optionally for
+    // one subject, for exports. Must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query("SELECT new com.campus.dto.AttendanceExportRow(a.date, u.rollNumber, u.name, a.subject, a.status, a.remarks, m.name) " +
+           "FROM Attendance a JOIN a.student u JOIN a.markedBy m " +
+           "WHERE m.id = :facultyId AND a.date BETWEEN :from AND :to " +
+           "AND (:subject IS NULL OR a.subject = :subject) " +
+           "ORDER BY a.date DESC, a.subject, u.rollNumber")
+    Stream<AttendanceExportRow> streamMarkedBy(
         @Param("facultyId") Long facultyId,
-        @Param("startDate") LocalDate startDate,
-        @Param("endDate") LocalDate endDate,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to,
         @Param("subject") String subject
     );
 }
@@ -0,0 +1,35 @@
+package com.campus.repository;
+
+import com.campus.model.Attendance;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AttendanceRepositoryCustom {
+    
+    /**
+     * Insert attendance rows with a single JDBC batch and write the
+     * generated ids back onto the given records.
+     */
+    void batchInsert(List<Attendance> records);
+    
+    /**
+     * Add the given changes to attendance_monthly_summary, creating rows as
+     * needed. Rows are updated in key order so concurrent writers lock them
+     * consistently.
+     */
+    void applySummaryDeltas(List<SummaryDelta> deltas);
+    
+    /**
+     * Recompute every attendance_monthly_summary row from the attendance table.
+     */
+    int rebuildSummaries();
+    
+    /**
+     * A change to one (student, subject, month) summary row. {@code subject}
+     * is never null; attendance without a subject uses the empty string.
+     */
+    record SummaryDelta(Long studentId, String subject, LocalDate monthStart,
+                        long present, long absent, long late) {
+    }
+}
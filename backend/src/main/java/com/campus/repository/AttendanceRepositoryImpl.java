@@ -0,0 +1,115 @@
+package com.campus.repository;
+
+import com.campus.model.Attendance;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class AttendanceRepositoryImpl implements AttendanceRepositoryCustom {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO attendance (student_id, marked_by, date, status, subject, remarks, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String SUMMARY_UPSERT_SQL =
+            "INSERT INTO attendance_monthly_summary (student_id, subject, month_start, present_count, absent_count, late_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE present_count = present_count + VALUES(present_count), " +
+            "absent_count = absent_count + VALUES(absent_count), late_count = late_count + VALUES(late_count)";
+    
+    // Overwrites existing rows, so it is also correct while attendance is being marked
+    private static final String SUMMARY_REBUILD_SQL =
+            "INSERT INTO attendance_monthly_summary (student_id, subject, month_start, present_count, absent_count, late_count) " +
+            "SELECT student_id, COALESCE(subject, ''), DATE_FORMAT(date, '%Y-%m-01'), " +
+            "SUM(status = 'PRESENT'), SUM(status = 'ABSENT'), SUM(status = 'LATE') " +
+            "FROM attendance GROUP BY student_id, COALESCE(subject, ''), DATE_FORMAT(date, '%Y-%m-01') " +
+            "ON DUPLICATE KEY UPDATE present_count = VALUES(present_count), " +
+            "absent_count = VALUES(absent_count), late_count = VALUES(late_count)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void batchInsert(List<Attendance> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        
+        // Attendance ids are IDENTITY columns, which Hibernate never batches. Going through
+        // JDBC lets the driver rewrite this into multi-row INSERTs (rewriteBatchedStatements).
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Attendance attendance = records.get(i);
+                        ps.setLong(1, attendance.getStudent().getId());
+                        ps.setLong(2, attendance.getMarkedBy().getId());
+                        ps.setDate(3, Date.valueOf(attendance.getDate()));
+                        ps.setString(4, attendance.getStatus().name());
+                        ps.setString(5, attendance.getSubject());
+                        ps.setString(6, attendance.getRemarks());
+                        ps.setTimestamp(7, Timestamp.valueOf(now));
+                    }
+                    
+                    @Override
+                    public int getBatchSize() {
+                        return records.size();
+                    }
+                },
+                keyHolder
+        );
+        
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < records.size(); i++) {
+            Attendance attendance = records.get(i);
+            if (i < keys.size()) {
+                Object key = keys.get(i).values().iterator().next();
+                attendance.setId(((Number) key).longValue());
+            }
+            attendance.setCreatedAt(now);
+        }
+    }
+    
+    @Override
+    public void applySummaryDeltas(List<SummaryDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        
+        List<SummaryDelta> ordered = new ArrayList<>(deltas);
+        ordered.sort(Comparator.comparing(SummaryDelta::studentId)
+                .thenComparing(SummaryDelta::subject)
+                .thenComparing(SummaryDelta::monthStart));
+        
+        jdbcTemplate.batchUpdate(SUMMARY_UPSERT_SQL, ordered, ordered.size(), (ps, delta) -> {
+            ps.setLong(1, delta.studentId());
+            ps.setString(2, delta.subject());
+            ps.setDate(3, Date.valueOf(delta.monthStart()));
+            ps.setLong(4, delta.present());
+            ps.setLong(5, delta.absent());
+            ps.setLong(6, delta.late());
+        });
+    }
+    
+    @Override
+    public int rebuildSummaries() {
+        return jdbcTemplate.update(SUMMARY_REBUILD_SQL);
+    }
+}
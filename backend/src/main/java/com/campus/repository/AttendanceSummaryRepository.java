@@ -0,0 +1,35 @@
+package com.campus.repository;
+
+import com.campus.model.AttendanceSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AttendanceSummaryRepository extends JpaRepository<AttendanceSummary, Long> {
+    
+    // Present, absent and late totals for one student over whole months
+    @Query("SELECT COALESCE(SUM(s.presentCount), 0), COALESCE(SUM(s.absentCount), 0), COALESCE(SUM(s.lateCount), 0) " +
+           "FROM AttendanceSummary s WHERE s.studentId = :studentId AND s.monthStart BETWEEN :fromMonth AND :toMonth")
+    List<Object[]> sumForStudent(
+        @Param("studentId") Long studentId,
+        @Param("fromMonth") LocalDate fromMonth,
+        @Param("toMonth") LocalDate toMonth
+    );
+    
+    // Per student and subject totals for a department over whole months:
+    // student id, roll number, name, subject, present, absent, late
+    @Query("SELECT u.id, u.rollNumber, u.name, s.subject, SUM(s.presentCount), SUM(s.absentCount), SUM(s.lateCount) " +
+           "FROM AttendanceSummary s, User u WHERE u.id = s.studentId AND u.department.id = :departmentId " +
+           "AND s.monthStart BETWEEN :fromMonth AND :toMonth " +
+           "GROUP BY u.id, u.rollNumber, u.name, s.subject")
+    List<Object[]> sumForDepartment(
+        @Param("departmentId") Long departmentId,
+        @Param("fromMonth") LocalDate fromMonth,
+        @Param("toMonth") LocalDate toMonth
+    );
+}
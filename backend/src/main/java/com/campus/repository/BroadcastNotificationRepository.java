@@ -0,0 +1,56 @@
+package com.campus.repository;
+
+import com.campus.model.BroadcastNotification;
+import com.campus.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BroadcastNotificationRepository extends JpaRepository<BroadcastNotification, Long> {
+    
+    // Broadcasts a member of the department can see, newest first
+    @Query("SELECT b FROM BroadcastNotification b WHERE b.departmentId = :departmentId " +
+           "AND (b.targetRole IS NULL OR b.targetRole = :role) AND b.createdAt >= :since " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BroadcastNotification> findVisible(
+        @Param("departmentId") Long departmentId,
+        @Param("role") User.Role role,
+        @Param("since") LocalDateTime since,
+        Pageable pageable
+    );
+    
+    // Next visible broadcasts after the cursor (before, beforeId) in newest-first order
+    @Query("SELECT b FROM BroadcastNotification b WHERE b.departmentId = :departmentId " +
+           "AND (b.targetRole IS NULL OR b.targetRole = :role) AND b.createdAt >= :since " +
+           "AND (b.createdAt < :before OR (b.createdAt = :before AND b.id < :beforeId)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BroadcastNotification> findVisibleBefore(
+        @Param("departmentId") Long departmentId,
+        @Param("role") User.Role role,
+        @Param("since") LocalDateTime since,
+        @Param("before") LocalDateTime before,
+        @Param("beforeId") Long beforeId,
+        Pageable pageable
+    );
+    
+    // Only scans the tail of the department's broadcasts above the user's watermark
+    @Query("SELECT COUNT(b) FROM BroadcastNotification b WHERE b.departmentId = :departmentId " +
+           "AND b.id > :watermark AND (b.targetRole IS NULL OR b.targetRole = :role) AND b.createdAt >= :since " +
+           "AND NOT EXISTS (SELECT r.id FROM BroadcastRead r WHERE r.userId = :userId AND r.broadcastId = b.id)")
+    long countUnread(
+        @Param("departmentId") Long departmentId,
+        @Param("role") User.Role role,
+        @Param("since") LocalDateTime since,
+        @Param("watermark") Long watermark,
+        @Param("userId") Long userId
+    );
+    
+    @Query("SELECT MAX(b.id) FROM BroadcastNotification b WHERE b.departmentId = :departmentId")
+    Long findMaxIdByDepartmentId(@Param("departmentId") Long departmentId);
+}
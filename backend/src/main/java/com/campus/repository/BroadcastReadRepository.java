@@ -0,0 +1,30 @@
+package com.campus.repository;
+
+import com.campus.model.BroadcastRead;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BroadcastReadRepository extends JpaRepository<BroadcastRead, Long> {
+    
+    /**
+     * Record a read; a read already recorded (e.g. a double click) is left as is.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO broadcast_reads (user_id, broadcast_id) VALUES (:userId, :broadcastId)",
+            nativeQuery = true)
+    void insertIgnore(@Param("userId") Long userId, @Param("broadcastId") Long broadcastId);
+    
+    @Query("SELECT r.broadcastId FROM BroadcastRead r WHERE r.userId = :userId AND r.broadcastId IN :broadcastIds")
+    List<Long> findReadBroadcastIds(@Param("userId") Long userId, @Param("broadcastIds") Collection<Long> broadcastIds);
+    
+    @Modifying
+    @Query("DELETE FROM BroadcastRead r WHERE r.userId = :userId AND r.broadcastId <= :watermark")
+    void deleteCoveredByWatermark(@Param("userId") Long userId, @Param("watermark") Long watermark);
+}
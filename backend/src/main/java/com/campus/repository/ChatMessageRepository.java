@@ -1,6 +1,7 @@
 package com.campus.repository;
 
 import com.campus.model.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,17 +9,36 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
+public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>, ChatMessageRepositoryCustom {
     
-    // Get message history between two users
-    @Query("SELECT cm FROM ChatMessage cm WHERE " +
-           "(cm.sender.id = :userId AND cm.receiver.id = :otherUserId) OR " +
-           "(cm.sender.id = :otherUserId AND cm.receiver.id = :userId) " +
-           "ORDER BY cm.createdAt ASC")
-    List<ChatMessage> findMessageHistory(@Param("userId") Long userId, 
-                                          @Param("otherUserId") Long otherUserId);
+    // Latest page of messages sent by one user to another (newest first)
+    @Query("SELECT cm FROM ChatMessage cm JOIN FETCH cm.sender JOIN FETCH cm.receiver WHERE " +
+           "cm.sender.id = :senderId AND cm.receiver.id = :receiverId " +
+           "ORDER BY cm.id DESC")
+    List<ChatMessage> findLatestSent(@Param("senderId") Long senderId,
+                                     @Param("receiverId") Long receiverId,
+                                     Pageable pageable);
+    
+    // Messages sent by one user to another older than a cursor (newest first)
+    @Query("SELECT cm FROM ChatMessage cm JOIN FETCH cm.sender JOIN FETCH cm.receiver WHERE " +
+           "cm.sender.id = :senderId AND cm.receiver.id = :receiverId " +
+           "AND cm.id < :beforeId ORDER BY cm.id DESC")
+    List<ChatMessage> findSentBefore(@Param("senderId") Long senderId,
+                                     @Param("receiverId") Long receiverId,
+                                     @Param("beforeId") Long beforeId,
+                                     Pageable pageable);
+    
+    // Messages sent by one user to another newer than a cursor (oldest first)
+    @Query("SELECT cm FROM ChatMessage cm JOIN FETCH cm.sender JOIN FETCH cm.receiver WHERE " +
+           "cm.sender.id = :senderId AND cm.receiver.id = :receiverId " +
+           "AND cm.id > :afterId ORDER BY cm.id ASC")
+    List<ChatMessage> findSentAfter(@Param("senderId") Long senderId,
+                                    @Param("receiverId") Long receiverId,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
     
     // Mark messages as read
     @Modifying
@@ -31,9 +51,45 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
            "cm.receiver.id = :userId AND cm.sender.id = :otherUserId AND cm.isRead = false")
     Long countUnreadMessages(@Param("userId") Long userId, @Param("otherUserId") Long otherUserId);
     
-    // Get group messages for a department
-    List<ChatMessage> findByDepartmentIdAndChatTypeOrderByCreatedAtAsc(
-        Long departmentId,
-        ChatMessage.ChatType chatType
-    );
+    // Latest page of group messages (newest first)
+    @Query("SELECT cm FROM ChatMessage cm JOIN FETCH cm.sender WHERE " +
+           "cm.department.id = :departmentId AND cm.chatType = :chatType " +
+           "ORDER BY cm.id DESC")
+    List<ChatMessage> findLatestGroupMessages(@Param("departmentId") Long departmentId,
+                                              @Param("chatType") ChatMessage.ChatType chatType,
+                                              Pageable pageable);
+    
+    // Group messages older than a cursor (newest first)
+    @Query("SELECT cm FROM ChatMessage cm JOIN FETCH cm.sender WHERE " +
+           "cm.department.id = :departmentId AND cm.chatType = :chatType " +
+           "AND cm.id < :beforeId ORDER BY cm.id DESC")
+    List<ChatMessage> findGroupMessagesBefore(@Param("departmentId") Long departmentId,
+                                              @Param("chatType") ChatMessage.ChatType chatType,
+                                              @Param("beforeId") Long beforeId,
+                                              Pageable pageable);
+    
+    // Group messages newer than a cursor (oldest first)
+    @Query("SELECT cm FROM ChatMessage cm JOIN FETCH cm.sender WHERE " +
+           "cm.department.id = :departmentId AND cm.chatType = :chatType " +
+           "AND cm.id > :afterId ORDER BY cm.id ASC")
+    List<ChatMessage> findGroupMessagesAfter(@Param("departmentId") Long departmentId,
+                                             @Param("chatType") ChatMessage.ChatType chatType,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+    
+    // Last sequence number of a group chat
+    @Query("SELECT s.lastSeq FROM ChatGroupSequence s WHERE s.departmentId = :departmentId AND s.chatType = :chatType")
+    Optional<Long> findLastGroupSeq(@Param("departmentId") Long departmentId,
+                                    @Param("chatType") ChatMessage.ChatType chatType);
+    
+    // A user's position in each group chat of a department: chat type, last seq, last read seq (or null)
+    @Query("SELECT s.chatType, s.lastSeq, r.lastReadSeq FROM ChatGroupSequence s " +
+           "LEFT JOIN ChatGroupRead r ON r.departmentId = s.departmentId AND r.chatType = s.chatType " +
+           "AND r.userId = :userId WHERE s.departmentId = :departmentId")
+    List<Object[]> findGroupReadState(@Param("userId") Long userId, @Param("departmentId") Long departmentId);
+    
+    @Query("SELECT COUNT(s) FROM ChatGroupSequence s")
+    long countGroupSequences();
+    
+    boolean existsByChatTypeNot(ChatMessage.ChatType chatType);
 }
@@ -0,0 +1,56 @@
+package com.campus.repository;
+
+import com.campus.dto.ChatSearchHitDTO;
+import com.campus.model.ChatMessage;
+
+import java.util.List;
+
+public interface ChatMessageRepositoryCustom {
+    
+    /**
+     * Take the next sequence number for a group chat. The sequence row stays
+     * locked until the calling transaction ends, so numbers are gap-free and
+     * follow commit order.
+     */
+    long nextGroupSeq(Long departmentId, ChatMessage.ChatType chatType);
+    
+    /**
+     * Move a user's read watermark for a group forward to {@code seq}; never
+     * moves it back.
+     */
+    void advanceGroupRead(Long userId, Long departmentId, ChatMessage.ChatType chatType, long seq);
+    
+    /**
+     * Start a user's watermarks at the current end of each group chat of a
+     * department where they have none yet (0 for a chat without messages),
+     * so history from before they joined does not count as unread.
+     * Existing watermarks are left alone.
+     */
+    void initGroupReads(Long userId, Long departmentId);
+    
+    /**
+     * Forget a user's watermarks outside their department, e.g. after a
+     * move; a null department forgets all of them.
+     */
+    void deleteGroupReadsOutside(Long userId, Long departmentId);
+    
+    /**
+     * Number existing group messages per group in id order, set the group
+     * sequences to match and mark everything so far as read for each
+     * department's users.
+     *
+     * @return number of groups numbered
+     */
+    int backfillGroupSequences();
+    
+    /**
+     * Messages matching a MySQL boolean-mode full-text query that the user
+     * can read: group messages of their department and their own one-to-one
+     * messages, newest first, older than {@code beforeId} when given.
+     */
+    List<ChatSearchHitDTO> searchMessages(String booleanQuery, Long userId, Long departmentId, Long beforeId, int limit);
+    
+    boolean hasFullTextIndex();
+    
+    void createFullTextIndex();
+}
@@ -0,0 +1,139 @@
+package com.campus.repository;
+
+import com.campus.dto.ChatSearchHitDTO;
+import com.campus.model.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ChatMessageRepositoryImpl implements ChatMessageRepositoryCustom {
+    
+    private static final String INCREMENT_SEQ_SQL =
+            "INSERT INTO chat_group_sequences (department_id, chat_type, last_seq) VALUES (?, ?, 1) " +
+            "ON DUPLICATE KEY UPDATE last_seq = last_seq + 1";
+    
+    // Reads this transaction's own update of the row, which it holds locked
+    private static final String READ_SEQ_SQL =
+            "SELECT last_seq FROM chat_group_sequences WHERE department_id = ? AND chat_type = ?";
+    
+    private static final String ADVANCE_READ_SQL =
+            "INSERT INTO chat_group_reads (user_id, department_id, chat_type, last_read_seq) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE last_read_seq = GREATEST(last_read_seq, VALUES(last_read_seq))";
+    
+    // Both group chats, at 0 for one without messages yet
+    private static final String INIT_READS_SQL =
+            "INSERT INTO chat_group_reads (user_id, department_id, chat_type, last_read_seq) " +
+            "SELECT ?, ?, g.chat_type, COALESCE(s.last_seq, 0) " +
+            "FROM (SELECT 'DEPARTMENT_GROUP' AS chat_type UNION ALL SELECT 'FACULTY_STUDENT_GROUP') g " +
+            "LEFT JOIN chat_group_sequences s ON s.department_id = ? AND s.chat_type = g.chat_type " +
+            "ON DUPLICATE KEY UPDATE last_read_seq = chat_group_reads.last_read_seq";
+    
+    private static final String DELETE_READS_OUTSIDE_SQL =
+            "DELETE FROM chat_group_reads WHERE user_id = ? AND (? IS NULL OR department_id <> ?)";
+    
+    private static final String NUMBER_MESSAGES_SQL =
+            "UPDATE chat_messages cm JOIN (" +
+            "  SELECT id, ROW_NUMBER() OVER (PARTITION BY department_id, chat_type ORDER BY id) AS seq " +
+            "  FROM chat_messages WHERE chat_type <> 'ONE_TO_ONE' AND department_id IS NOT NULL" +
+            ") numbered ON numbered.id = cm.id SET cm.group_seq = numbered.seq";
+    
+    private static final String SET_SEQUENCES_SQL =
+            "INSERT INTO chat_group_sequences (department_id, chat_type, last_seq) " +
+            "SELECT department_id, chat_type, MAX(group_seq) FROM chat_messages " +
+            "WHERE group_seq IS NOT NULL GROUP BY department_id, chat_type " +
+            "ON DUPLICATE KEY UPDATE last_seq = VALUES(last_seq)";
+    
+    private static final String MARK_HISTORY_READ_SQL =
+            "INSERT INTO chat_group_reads (user_id, department_id, chat_type, last_read_seq) " +
+            "SELECT u.id, s.department_id, s.chat_type, s.last_seq FROM users u " +
+            "JOIN chat_group_sequences s ON s.department_id = u.department_id " +
+            "ON DUPLICATE KEY UPDATE last_read_seq = GREATEST(last_read_seq, VALUES(last_read_seq))";
+    
+    private static final String FULLTEXT_INDEX = "ft_chat_message";
+    
+    // Group messages of the user's department, or one-to-one messages they sent or received
+    private static final String SEARCH_SCOPE =
+            "WHERE MATCH(cm.message) AGAINST (? IN BOOLEAN MODE) " +
+            "AND ((cm.chat_type <> 'ONE_TO_ONE' AND cm.department_id = ?) " +
+            "OR (cm.chat_type = 'ONE_TO_ONE' AND (cm.sender_id = ? OR cm.receiver_id = ?))) " +
+            "AND cm.id < ?";
+    
+    private static final String SEARCH_SQL =
+            "SELECT cm.id, cm.chat_type, cm.department_id, cm.sender_id, s.name AS sender_name, " +
+            "cm.receiver_id, r.name AS receiver_name, cm.message, cm.created_at, cm.group_seq " +
+            "FROM chat_messages cm JOIN users s ON s.id = cm.sender_id LEFT JOIN users r ON r.id = cm.receiver_id " +
+            SEARCH_SCOPE + " ORDER BY cm.id DESC LIMIT ?";
+    
+    private static final String HAS_INDEX_SQL =
+            "SELECT COUNT(*) FROM information_schema.statistics " +
+            "WHERE table_schema = DATABASE() AND table_name = 'chat_messages' AND index_name = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public long nextGroupSeq(Long departmentId, ChatMessage.ChatType chatType) {
+        jdbcTemplate.update(INCREMENT_SEQ_SQL, departmentId, chatType.name());
+        Long seq = jdbcTemplate.queryForObject(READ_SEQ_SQL, Long.class, departmentId, chatType.name());
+        if (seq == null) {
+            throw new IllegalStateException("No sequence number allocated for group " + departmentId + "/" + chatType);
+        }
+        return seq;
+    }
+    
+    @Override
+    public void advanceGroupRead(Long userId, Long departmentId, ChatMessage.ChatType chatType, long seq) {
+        jdbcTemplate.update(ADVANCE_READ_SQL, userId, departmentId, chatType.name(), seq);
+    }
+    
+    @Override
+    public void initGroupReads(Long userId, Long departmentId) {
+        jdbcTemplate.update(INIT_READS_SQL, userId, departmentId, departmentId);
+    }
+    
+    @Override
+    public void deleteGroupReadsOutside(Long userId, Long departmentId) {
+        jdbcTemplate.update(DELETE_READS_OUTSIDE_SQL, userId, departmentId, departmentId);
+    }
+    
+    @Override
+    public int backfillGroupSequences() {
+        jdbcTemplate.update(NUMBER_MESSAGES_SQL);
+        int groups = jdbcTemplate.update(SET_SEQUENCES_SQL);
+        jdbcTemplate.update(MARK_HISTORY_READ_SQL);
+        return groups;
+    }
+    
+    @Override
+    public List<ChatSearchHitDTO> searchMessages(String booleanQuery, Long userId, Long departmentId,
+                                                 Long beforeId, int limit) {
+        return jdbcTemplate.query(SEARCH_SQL, (rs, rowNum) -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            return new ChatSearchHitDTO(
+                    rs.getLong("id"),
+                    ChatMessage.ChatType.valueOf(rs.getString("chat_type")),
+                    rs.getObject("department_id", Long.class),
+                    rs.getLong("sender_id"),
+                    rs.getString("sender_name"),
+                    rs.getObject("receiver_id", Long.class),
+                    rs.getString("receiver_name"),
+                    rs.getString("message"),
+                    createdAt != null ? createdAt.toLocalDateTime() : null,
+                    rs.getObject("group_seq", Long.class)
+            );
+        }, booleanQuery, departmentId, userId, userId, beforeId != null ? beforeId : Long.MAX_VALUE, limit);
+    }
+    
+    @Override
+    public boolean hasFullTextIndex() {
+        Integer count = jdbcTemplate.queryForObject(HAS_INDEX_SQL, Integer.class, FULLTEXT_INDEX);
+        return count != null && count > 0;
+    }
+    
+    @Override
+    public void createFullTextIndex() {
+        jdbcTemplate.execute("ALTER TABLE chat_messages ADD FULLTEXT INDEX " + FULLTEXT_INDEX + " (message)");
+    }
+}
@@ -1,13 +1,16 @@
 package com.campus.repository;
 
+import com.campus.dto.ConversationDTO;
 import com.campus.model.ChatMessage;
 import com.campus.model.ChatParticipant;
 import com.campus.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +20,19 @@ public interface ChatParticipantRepository extends JpaRepository<ChatParticipant
     // Get all conversations for a user
     List<ChatParticipant> findByUserIdOrderByUpdatedAtDesc(Long userId);
     
+    // Conversation list with other-user summary and last message in one query
+    @Query("SELECT new com.campus.dto.ConversationDTO(cp.id, u.id, u.name, u.role, cm.message, " +
+           "cp.unreadCount, cp.updatedAt) " +
+           "FROM ChatParticipant cp " +
+           "JOIN User u ON u.id = cp.otherUserId " +
+           "LEFT JOIN ChatMessage cm ON cm.id = cp.lastMessageId " +
+           "WHERE cp.userId = :userId AND cp.chatType = :chatType " +
+           "ORDER BY cp.updatedAt DESC")
+    List<ConversationDTO> findConversationSummaries(
+        @Param("userId") Long userId,
+        @Param("chatType") ChatMessage.ChatType chatType
+    );
+    
     // Find specific conversation
     Optional<ChatParticipant> findByUserIdAndOtherUserIdAndChatType(
         Long userId, 
@@ -31,6 +47,52 @@ public interface ChatParticipantRepository extends JpaRepository<ChatParticipant
         ChatMessage.ChatType chatType
     );
     
+    // Unread one-to-one messages across all of a user's conversations
+    @Query("SELECT COALESCE(SUM(cp.unreadCount), 0) FROM ChatParticipant cp " +
+           "WHERE cp.userId = :userId AND cp.chatType = :chatType")
+    Long sumUnreadCounts(@Param("userId") Long userId, @Param("chatType") ChatMessage.ChatType chatType);
+    
+    // Group chats a user has joined
+    @Query("SELECT cp.departmentId FROM ChatParticipant cp WHERE cp.userId = :userId AND cp.chatType = :chatType")
+    List<Long> findDepartmentIdsByUserIdAndChatType(
+        @Param("userId") Long userId,
+        @Param("chatType") ChatMessage.ChatType chatType
+    );
+    
+    // Join a group chat; returns 0 when the user is already a member
+    @Modifying
+    @Query(value = "INSERT INTO chat_participants (user_id, chat_type, department_id, unread_count, updated_at) " +
+                   "VALUES (:userId, :chatType, :departmentId, 0, NOW()) " +
+                   "ON DUPLICATE KEY UPDATE id = id", nativeQuery = true)
+    int insertGroupMembership(
+        @Param("userId") Long userId,
+        @Param("chatType") String chatType,
+        @Param("departmentId") Long departmentId
+    );
+    
+    @Modifying
+    @Query("DELETE FROM ChatParticipant cp WHERE cp.userId = :userId AND cp.chatType = :chatType AND cp.departmentId = :departmentId")
+    int deleteGroupMembership(
+        @Param("userId") Long userId,
+        @Param("chatType") ChatMessage.ChatType chatType,
+        @Param("departmentId") Long departmentId
+    );
+    
+    // Faculty and admins who joined a group chat, across all departments: department id, user id
+    @Query("SELECT cp.departmentId, cp.userId FROM ChatParticipant cp " +
+           "JOIN User u ON cp.userId = u.id " +
+           "WHERE cp.chatType = :chatType " +
+           "AND (u.role = 'FACULTY' OR u.role = 'ADMIN')")
+    List<Object[]> findMonitors(@Param("chatType") ChatMessage.ChatType chatType);
+    
+    // Same, restricted to the given users
+    @Query("SELECT cp.departmentId, cp.userId FROM ChatParticipant cp " +
+           "JOIN User u ON cp.userId = u.id " +
+           "WHERE cp.chatType = :chatType AND cp.userId IN :userIds " +
+           "AND (u.role = 'FACULTY' OR u.role = 'ADMIN')")
+    List<Object[]> findMonitorsAmong(@Param("chatType") ChatMessage.ChatType chatType,
+                                     @Param("userIds") Collection<Long> userIds);
+    
     // Check if faculty is monitoring department group
     @Query("SELECT CASE WHEN COUNT(cp) > 0 THEN true ELSE false END FROM ChatParticipant cp " +
            "JOIN User u ON cp.userId = u.id " +
@@ -4,18 +4,39 @@ import com.campus.model.Notification;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface NotificationRepository extends JpaRepository<Notification, Long> {
+public interface NotificationRepository extends JpaRepository<Notification, Long>, NotificationRepositoryCustom {
     
     Page<Notification> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
     
+    List<Notification> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, Pageable pageable);
+    
+    // Next notifications after the cursor (before, beforeId) in newest-first order
+    @Query("SELECT n FROM Notification n WHERE n.userId = :userId " +
+           "AND (n.createdAt < :before OR (n.createdAt = :before AND n.id < :beforeId)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findByUserIdBefore(
+        @Param("userId") Long userId,
+        @Param("before") LocalDateTime before,
+        @Param("beforeId") Long beforeId,
+        Pageable pageable
+    );
+    
     Long countByUserIdAndIsReadFalse(Long userId);
     
     List<Notification> findByUserIdAndIsReadFalse(Long userId);
     
     List<Notification> findTop5ByUserIdOrderByCreatedAtDesc(Long userId);
+    
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.userId = :userId AND n.isRead = false")
+    void markAllAsRead(@Param("userId") Long userId);
 }
@@ -0,0 +1,13 @@
+package com.campus.repository;
+
+import com.campus.model.Notification;
+
+import java.util.List;
+
+public interface NotificationRepositoryCustom {
+    
+    /**
+     * Insert notifications as JDBC batches of at most {@code batchSize} rows.
+     */
+    void batchInsert(List<Notification> notifications, int batchSize);
+}
@@ -0,0 +1,43 @@
+package com.campus.repository;
+
+import com.campus.model.Notification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class NotificationRepositoryImpl implements NotificationRepositoryCustom {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO notifications (user_id, title, message, type, reference_id, is_read, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void batchInsert(List<Notification> notifications, int batchSize) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        
+        jdbcTemplate.batchUpdate(INSERT_SQL, notifications, batchSize, (ps, notification) -> {
+            ps.setLong(1, notification.getUserId());
+            ps.setString(2, notification.getTitle());
+            ps.setString(3, notification.getMessage());
+            ps.setString(4, notification.getType().name());
+            if (notification.getReferenceId() != null) {
+                ps.setLong(5, notification.getReferenceId());
+            } else {
+                ps.setNull(5, Types.BIGINT);
+            }
+            ps.setBoolean(6, Boolean.TRUE.equals(notification.getIsRead()));
+            ps.setTimestamp(7, notification.getCreatedAt() != null ? Timestamp.valueOf(notification.getCreatedAt()) : now);
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package com.campus.repository;
+
+import com.campus.model.NotificationWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NotificationWatermarkRepository extends JpaRepository<NotificationWatermark, Long> {
+    
+    /**
+     * Create the user's watermark or move it forward to {@code broadcastId};
+     * it never moves back, so concurrent calls cannot undo each other.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO notification_watermarks (user_id, last_read_broadcast_id, updated_at) "
+            + "VALUES (:userId, :broadcastId, NOW()) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "last_read_broadcast_id = GREATEST(last_read_broadcast_id, VALUES(last_read_broadcast_id)), "
+            + "updated_at = NOW()",
+            nativeQuery = true)
+    void advance(@Param("userId") Long userId, @Param("broadcastId") Long broadcastId);
+}
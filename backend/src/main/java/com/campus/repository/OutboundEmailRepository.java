@@ -0,0 +1,37 @@
+package com.campus.repository;
+
+import com.campus.model.OutboundEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, Long> {
+    
+    /**
+     * Claim up to {@code limit} due messages, oldest first, for one dispatch
+     * run. Claimed rows are not due again until {@code leaseUntil}, so other
+     * nodes skip them while they are being sent and pick them up again if
+     * this one dies before recording the outcome.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE email_outbox SET claimed_by = :claim, next_attempt_at = :leaseUntil " +
+                   "WHERE status = 'PENDING' AND next_attempt_at <= :now ORDER BY id LIMIT :limit", nativeQuery = true)
+    int claimDue(@Param("claim") String claim, @Param("now") LocalDateTime now,
+                 @Param("leaseUntil") LocalDateTime leaseUntil, @Param("limit") int limit);
+    
+    @Query("SELECT e FROM OutboundEmail e WHERE e.claimedBy = :claim AND e.status = 'PENDING' ORDER BY e.id")
+    List<OutboundEmail> findClaimed(@Param("claim") String claim);
+    
+    long countByStatus(OutboundEmail.Status status);
+    
+    @Query("SELECT MIN(e.createdAt) FROM OutboundEmail e WHERE e.status = 'PENDING'")
+    LocalDateTime findOldestPendingCreatedAt();
+}
@@ -0,0 +1,34 @@
+package com.campus.repository;
+
+import com.campus.model.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reference counting for content-addressed uploads. FileStorageService runs
+ * these in their own short transaction; only removing an unreferenced blob
+ * holds the row lock while the object is deleted.
+ */
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+    
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO stored_blobs (hash, size, ref_count, created_at) VALUES (:hash, :size, 1, NOW()) " +
+                   "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1", nativeQuery = true)
+    void acquire(@Param("hash") String hash, @Param("size") long size);
+    
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE stored_blobs SET ref_count = ref_count - 1 WHERE hash = :hash AND ref_count > 0", nativeQuery = true)
+    int release(@Param("hash") String hash);
+    
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM stored_blobs WHERE hash = :hash AND ref_count = 0", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("hash") String hash);
+}
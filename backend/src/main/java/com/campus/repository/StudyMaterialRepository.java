@@ -9,7 +9,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface StudyMaterialRepository extends JpaRepository<StudyMaterial, Long> {
+public interface StudyMaterialRepository extends JpaRepository<StudyMaterial, Long>, StudyMaterialRepositoryCustom {
     
     // Find by department
     List<StudyMaterial> findByDepartmentIdOrderByCreatedAtDesc(Long departmentId);
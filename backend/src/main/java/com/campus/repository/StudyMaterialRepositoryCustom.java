@@ -0,0 +1,11 @@
+package com.campus.repository;
+
+import java.util.Map;
+
+public interface StudyMaterialRepositoryCustom {
+    
+    /**
+     * Add the given deltas to each material's download count in one JDBC batch.
+     */
+    void addDownloadCounts(Map<Long, Long> deltas);
+}
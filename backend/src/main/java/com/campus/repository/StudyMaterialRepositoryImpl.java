@@ -0,0 +1,36 @@
+package com.campus.repository;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class StudyMaterialRepositoryImpl implements StudyMaterialRepositoryCustom {
+    
+    private static final String ADD_DOWNLOADS_SQL =
+            "UPDATE study_materials SET download_count = download_count + ? WHERE id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    // One transaction, so a failed flush applies none of its deltas and can be retried whole
+    @Override
+    @Transactional
+    public void addDownloadCounts(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        
+        // Update rows in id order so concurrent flushes lock them in the same order
+        List<Map.Entry<Long, Long>> rows = new ArrayList<>(deltas.entrySet());
+        rows.sort(Map.Entry.comparingByKey());
+        
+        jdbcTemplate.batchUpdate(ADD_DOWNLOADS_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getValue());
+            ps.setLong(2, row.getKey());
+        });
+    }
+}
@@ -2,21 +2,47 @@ package com.campus.repository;
 
 import com.campus.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>, UserRepositoryCustom {
     
     Optional<User> findByEmail(String email);
     
     boolean existsByEmail(String email);
     
+    // Whether a stored file is someone's current profile picture
+    boolean existsByProfilePicture(String profilePicture);
+    
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    
     List<User> findByRole(User.Role role);
     
     List<User> findByDepartmentId(Long departmentId);
     
     List<User> findByIsActive(Boolean isActive);
+    
+    // Role and department of every user: id, role, department id
+    @Query("SELECT u.id, u.role, d.id FROM User u LEFT JOIN u.department d")
+    List<Object[]> findAllRolesAndDepartments();
+    
+    // Same, for users changed at or after since
+    @Query("SELECT u.id, u.role, d.id FROM User u LEFT JOIN u.department d WHERE u.updatedAt >= :since")
+    List<Object[]> findRolesAndDepartmentsUpdatedSince(@Param("since") LocalDateTime since);
+    
+    // Mark a user as changed without loading it, e.g. after a group membership change
+    @Modifying
+    @Query("UPDATE User u SET u.updatedAt = CURRENT_TIMESTAMP WHERE u.id = :userId")
+    void touch(@Param("userId") Long userId);
 }
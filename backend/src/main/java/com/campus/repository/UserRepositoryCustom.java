@@ -0,0 +1,14 @@
+package com.campus.repository;
+
+import com.campus.model.User;
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+    
+    /**
+     * Insert new users with a single JDBC batch in one transaction and write
+     * the generated ids and timestamps back onto the given entities.
+     */
+    void batchInsert(List<User> users);
+}
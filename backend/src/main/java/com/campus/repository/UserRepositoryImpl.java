@@ -0,0 +1,87 @@
+package com.campus.repository;
+
+import com.campus.model.User;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO users (email, password, name, role, department_id, roll_number, joining_year, " +
+            "designation, is_first_login, is_active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    @Transactional
+    public void batchInsert(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        User user = users.get(i);
+                        ps.setString(1, user.getEmail());
+                        ps.setString(2, user.getPassword());
+                        ps.setString(3, user.getName());
+                        ps.setString(4, user.getRole().name());
+                        if (user.getDepartment() != null) {
+                            ps.setLong(5, user.getDepartment().getId());
+                        } else {
+                            ps.setNull(5, Types.BIGINT);
+                        }
+                        ps.setString(6, user.getRollNumber());
+                        if (user.getJoiningYear() != null) {
+                            ps.setInt(7, user.getJoiningYear());
+                        } else {
+                            ps.setNull(7, Types.INTEGER);
+                        }
+                        ps.setString(8, user.getDesignation());
+                        ps.setBoolean(9, user.getIsFirstLogin());
+                        ps.setBoolean(10, user.getIsActive());
+                        ps.setTimestamp(11, Timestamp.valueOf(now));
+                        ps.setTimestamp(12, Timestamp.valueOf(now));
+                    }
+                    
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                },
+                keyHolder
+        );
+        
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (i < keys.size()) {
+                Object key = keys.get(i).values().iterator().next();
+                user.setId(((Number) key).longValue());
+            }
+            user.setCreatedAt(now);
+            user.setUpdatedAt(now);
+        }
+    }
+}
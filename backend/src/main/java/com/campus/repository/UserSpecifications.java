@@ -0,0 +1,45 @@
+package com.campus.repository;
+
+import com.campus.model.User;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Filters for the admin user listing. Search is a prefix match so that it
+ * can use the name, email and roll number indexes; the column collation
+ * makes it case-insensitive.
+ */
+public final class UserSpecifications {
+    
+    private UserSpecifications() {
+    }
+    
+    public static Specification<User> hasRole(User.Role role) {
+        return (root, query, cb) -> role == null ? null : cb.equal(root.get("role"), role);
+    }
+    
+    public static Specification<User> inDepartment(Long departmentId) {
+        return (root, query, cb) -> departmentId == null
+                ? null
+                : cb.equal(root.get("department").get("id"), departmentId);
+    }
+    
+    public static Specification<User> matchesSearch(String search) {
+        return (root, query, cb) -> {
+            if (search == null || search.isBlank()) {
+                return null;
+            }
+            String pattern = escapeLike(search.trim()) + "%";
+            return cb.or(
+                    cb.like(root.get("name"), pattern, '\\'),
+                    cb.like(root.get("email"), pattern, '\\'),
+                    cb.like(root.get("rollNumber"), pattern, '\\')
+            );
+        };
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -1,23 +1,36 @@
 package com.campus.security;
 
+import com.campus.event.UserChangedEvent;
 import com.campus.model.User;
 import com.campus.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.campus.util.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
     
     private final UserRepository userRepository;
+    private final TtlCache<Long, UserPrincipal> principalCache;
+    
+    public CustomUserDetailsService(
+            UserRepository userRepository,
+            @Value("${app.security.principal-cache.max-users:10000}") int cacheMaxUsers,
+            @Value("${app.security.principal-cache.ttl-seconds:300}") long cacheTtlSeconds
+    ) {
+        this.userRepository = userRepository;
+        this.principalCache = new TtlCache<>(cacheMaxUsers, Duration.ofSeconds(cacheTtlSeconds));
+    }
     
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
@@ -39,22 +52,28 @@ public class CustomUserDetailsService implements UserDetailsService {
         );
     }
     
-    public UserDetails loadUserById(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + userId));
+    /**
+     * Principal for a user id taken from a verified token. Served from a
+     * bounded concurrent cache so authenticated requests neither hit the
+     * database nor contend on a lock;
+     * entries are dropped when the account changes (see UserChangedEvent).
+     */
+    public UserPrincipal loadUserById(Long userId) {
+        UserPrincipal principal = principalCache.get(userId, id -> userRepository.findById(id)
+                .map(UserPrincipal::from)
+                .orElse(null));
         
-        if (!user.getIsActive()) {
+        if (principal == null) {
+            throw new UsernameNotFoundException("User not found with id: " + userId);
+        }
+        if (!principal.isActive()) {
             throw new UsernameNotFoundException("User account is inactive");
         }
-        
-        List<GrantedAuthority> authorities = Collections.singletonList(
-                new SimpleGrantedAuthority("ROLE_" + user.getRole().name())
-        );
-        
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
-                authorities
-        );
+        return principal;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        principalCache.invalidate(event.getUserId());
     }
 }
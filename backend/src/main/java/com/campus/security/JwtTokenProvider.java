@@ -1,13 +1,21 @@
 package com.campus.security;
 
+import com.campus.util.TtlCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.Optional;
 
 @Component
 public class JwtTokenProvider {
@@ -21,8 +29,26 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-token-expiration}")
     private long refreshTokenExpiration;
     
+    @Value("${app.security.token-cache.max-entries:10000}")
+    private int tokenCacheMaxEntries;
+    
+    private SecretKey signingKey;
+    private JwtParser parser;
+    
+    /** Claims of tokens that already passed verification, keyed by SHA-256 of the token. */
+    private TtlCache<String, Claims> verifiedTokens;
+    
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        verifiedTokens = new TtlCache<>(tokenCacheMaxEntries, Duration.ofMillis(accessTokenExpiration));
+    }
+    
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
     }
     
     public String generateAccessToken(Long userId, String email, String role) {
@@ -51,45 +77,62 @@ public class JwtTokenProvider {
                 .compact();
     }
     
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Verify a token and return its claims, or empty if it is malformed,
+     * badly signed or expired. A token is HMAC-verified once; repeat calls
+     * are answered from a cache until the token's own expiry.
+     */
+    public Optional<Claims> verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
         
-        return Long.parseLong(claims.getSubject());
+        String key = hash(token);
+        Claims claims = verifiedTokens.get(key, k -> parse(token));
+        if (claims == null) {
+            return Optional.empty();
+        }
+        if (claims.getExpiration() != null && !claims.getExpiration().after(new Date())) {
+            verifiedTokens.invalidate(key);
+            return Optional.empty();
+        }
+        return Optional.of(claims);
+    }
+    
+    public Long getUserIdFromToken(String token) {
+        return Long.parseLong(requireClaims(token).getSubject());
     }
     
     public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        
-        return claims.get("email", String.class);
+        return requireClaims(token).get("email", String.class);
     }
     
     public String getRoleFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        
-        return claims.get("role", String.class);
+        return requireClaims(token).get("role", String.class);
     }
     
     public boolean validateToken(String token) {
+        return verify(token).isPresent();
+    }
+    
+    private Claims requireClaims(String token) {
+        return verify(token).orElseThrow(() -> new JwtException("Invalid or expired token"));
+    }
+    
+    private Claims parse(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            return parser.parseSignedClaims(token).getPayload();
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
+        }
+    }
+    
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
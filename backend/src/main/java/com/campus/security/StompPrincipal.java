@@ -0,0 +1,23 @@
+package com.campus.security;
+
+import com.campus.model.User;
+
+import java.security.Principal;
+
+/**
+ * Identity attached to a STOMP session when it connects, so message
+ * handlers get the user without a lookup per frame. The name is the user
+ * id, which is also what {@code /user/...} destinations are addressed by.
+ */
+public record StompPrincipal(Long userId, String displayName, User.Role role, Long departmentId) implements Principal {
+    
+    public static StompPrincipal from(UserPrincipal principal) {
+        return new StompPrincipal(principal.getId(), principal.getName(), principal.getRole(),
+                principal.getDepartmentId());
+    }
+    
+    @Override
+    public String getName() {
+        return userId.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.campus.security;
+
+import com.campus.model.User;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.Serial;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Authenticated user as seen by controllers. Carries what request handling
+ * needs so that handlers do not have to look the user up again; the
+ * password hash is deliberately not kept.
+ */
+@Getter
+public class UserPrincipal implements UserDetails {
+    
+    @Serial
+    private static final long serialVersionUID = 1L;
+    
+    private final Long id;
+    private final String email;
+    private final String name;
+    private final User.Role role;
+    private final Long departmentId;
+    private final boolean active;
+    private final LocalDateTime createdAt;
+    private final Collection<? extends GrantedAuthority> authorities;
+    
+    public UserPrincipal(Long id, String email, String name, User.Role role, Long departmentId, boolean active,
+                         LocalDateTime createdAt) {
+        this.id = id;
+        this.email = email;
+        this.name = name;
+        this.role = role;
+        this.departmentId = departmentId;
+        this.active = active;
+        this.createdAt = createdAt;
+        this.authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+    
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(
+                user.getId(),
+                user.getEmail(),
+                user.getName(),
+                user.getRole(),
+                user.getDepartment() != null ? user.getDepartment().getId() : null,
+                Boolean.TRUE.equals(user.getIsActive()),
+                user.getCreatedAt()
+        );
+    }
+    
+    @Override
+    public String getPassword() {
+        return null;
+    }
+    
+    @Override
+    public String getUsername() {
+        return email;
+    }
+    
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+    
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+    
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return active;
+    }
+}
@@ -0,0 +1,253 @@
+package com.campus.service;
+
+import com.campus.dto.AttendanceExportRow;
+import com.campus.dto.AttendanceReportDTO;
+import com.campus.repository.AttendanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Writes attendance records as CSV or .xlsx straight to an output stream.
+ *
+ * Records come from a streamed JPQL projection and Excel output goes
+ * through SXSSF, which keeps only a small window of rows in memory and
+ * spills the rest to a temporary file, so memory use does not depend on
+ * how many records are exported.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AttendanceExportService {
+    
+    private static final String[] REGISTER_HEADER =
+            {"Date", "Roll Number", "Student Name", "Subject", "Status", "Remarks", "Marked By"};
+    private static final String[] SUMMARY_HEADER =
+            {"Roll Number", "Student Name", "Subject", "Total Classes", "Present", "Absent", "Percentage"};
+    
+    /** Rows SXSSF keeps in memory before flushing to its temporary file. */
+    private static final int ROW_WINDOW = 100;
+    
+    private final AttendanceRepository attendanceRepository;
+    private final AttendanceSummaryService attendanceSummaryService;
+    
+    public enum Format {
+        CSV("text/csv; charset=UTF-8", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+        
+        private final String contentType;
+        private final String extension;
+        
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+        
+        public static Format from(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unsupported export format: " + value);
+            }
+        }
+    }
+    
+    /**
+     * Department attendance between two dates. The workbook has a summary
+     * sheet per student and subject followed by the full register; CSV holds
+     * the register only.
+     */
+    @Transactional(readOnly = true)
+    public void exportDepartment(Long departmentId, LocalDate from, LocalDate to, Format format,
+                                 OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        // Summary queries run first: MySQL allows no other statement on the
+        // connection while a streaming result set is open
+        List<AttendanceReportDTO> summary = format == Format.XLSX
+                ? attendanceSummaryService.departmentReport(departmentId, from, to)
+                : null;
+        try (Stream<AttendanceExportRow> rows = attendanceRepository.streamForDepartment(departmentId, from, to)) {
+            if (format == Format.CSV) {
+                writeCsv(rows, out);
+            } else {
+                writeXlsx(summary, rows, out);
+            }
+        }
+        log.debug("Exported department {} attendance as {} in {} ms", departmentId, format,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    /**
+     * Every record a faculty member marked between two dates, optionally
+     * limited to one subject.
+     */
+    @Transactional(readOnly = true)
+    public void exportFacultyHistory(Long facultyId, LocalDate from, LocalDate to, String subject,
+                                     Format format, OutputStream out) throws IOException {
+        String subjectFilter = subject != null && !subject.trim().isEmpty() ? subject : null;
+        try (Stream<AttendanceExportRow> rows = attendanceRepository.streamMarkedBy(facultyId, from, to, subjectFilter)) {
+            if (format == Format.CSV) {
+                writeCsv(rows, out);
+            } else {
+                writeXlsx(null, rows, out);
+            }
+        }
+    }
+    
+    private void writeCsv(Stream<AttendanceExportRow> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // Byte order mark so Excel opens the file as UTF-8
+        writer.write('\uFEFF');
+        writeCsvLine(writer, REGISTER_HEADER);
+        try {
+            rows.forEach(row -> {
+                try {
+                    writeCsvLine(writer, registerValues(row));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+    
+    private void writeCsvLine(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+    
+    private String csvField(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        // Spreadsheets evaluate cells starting with these as formulas
+        if ("=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+    
+    private void writeXlsx(List<AttendanceReportDTO> summary, Stream<AttendanceExportRow> rows,
+                           OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            headerStyle.setFont(bold);
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+            CellStyle percentStyle = workbook.createCellStyle();
+            percentStyle.setDataFormat(workbook.createDataFormat().getFormat("0.00"));
+            
+            if (summary != null) {
+                SXSSFSheet sheet = createSheet(workbook, "Summary", SUMMARY_HEADER, headerStyle);
+                int rowIndex = 1;
+                for (AttendanceReportDTO report : summary) {
+                    Row row = sheet.createRow(rowIndex++);
+                    setText(row, 0, report.getRollNumber());
+                    setText(row, 1, report.getStudentName());
+                    setText(row, 2, report.getSubject());
+                    row.createCell(3).setCellValue(report.getTotalClasses());
+                    row.createCell(4).setCellValue(report.getPresentCount());
+                    row.createCell(5).setCellValue(report.getAbsentCount());
+                    Cell percentage = row.createCell(6);
+                    percentage.setCellValue(report.getPercentage());
+                    percentage.setCellStyle(percentStyle);
+                }
+            }
+            
+            SXSSFSheet sheet = createSheet(workbook, "Register", REGISTER_HEADER, headerStyle);
+            int rowIndex = 1;
+            Iterator<AttendanceExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                AttendanceExportRow record = iterator.next();
+                Row row = sheet.createRow(rowIndex++);
+                Cell date = row.createCell(0);
+                date.setCellValue(record.getDate());
+                date.setCellStyle(dateStyle);
+                String[] values = registerValues(record);
+                for (int i = 1; i < values.length; i++) {
+                    setText(row, i, values[i]);
+                }
+            }
+            
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+    
+    private SXSSFSheet createSheet(SXSSFWorkbook workbook, String name, String[] header, CellStyle headerStyle) {
+        SXSSFSheet sheet = workbook.createSheet(name);
+        Row row = sheet.createRow(0);
+        for (int i = 0; i < header.length; i++) {
+            Cell cell = row.createCell(i);
+            cell.setCellValue(header[i]);
+            cell.setCellStyle(headerStyle);
+            // Auto-sizing needs every row in memory, so use fixed widths
+            sheet.setColumnWidth(i, (header[i].length() + 8) * 256);
+        }
+        sheet.createFreezePane(0, 1);
+        return sheet;
+    }
+    
+    private void setText(Row row, int column, String value) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value);
+        }
+    }
+    
+    private String[] registerValues(AttendanceExportRow row) {
+        return new String[] {
+                row.getDate().toString(),
+                row.getRollNumber(),
+                row.getStudentName(),
+                row.getSubject(),
+                row.getStatus().name(),
+                row.getRemarks(),
+                row.getMarkedByName()
+        };
+    }
+}
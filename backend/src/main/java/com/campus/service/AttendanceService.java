@@ -9,7 +9,6 @@ import com.campus.model.Attendance;
 import com.campus.model.Notification;
 import com.campus.model.User;
 import com.campus.repository.AttendanceRepository;
-import com.campus.repository.NotificationRepository;
 import com.campus.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -18,7 +17,12 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,33 +32,56 @@ public class AttendanceService {
     
     private final AttendanceRepository attendanceRepository;
     private final UserRepository userRepository;
-    private final NotificationRepository notificationRepository;
+    private final NotificationFanoutService notificationFanoutService;
+    private final AttendanceSummaryService attendanceSummaryService;
     
     @Transactional
     public List<AttendanceDTO> markBulkAttendance(MarkAttendanceRequest request, Long facultyId) {
         User faculty = userRepository.findById(facultyId)
                 .orElseThrow(() -> new CustomExceptions.UserNotFoundException("Faculty not found"));
         
-        List<Attendance> attendanceRecords = new ArrayList<>();
+        List<MarkAttendanceRequest.StudentAttendance> roster = request.getAttendanceList();
+        if (roster.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        // Load the whole roster with one IN query
+        Set<Long> studentIds = new LinkedHashSet<>();
+        for (MarkAttendanceRequest.StudentAttendance studentAtt : roster) {
+            if (!studentIds.add(studentAtt.getStudentId())) {
+                throw new RuntimeException("Student " + studentAtt.getStudentId() + " appears more than once in the attendance list");
+            }
+        }
+        
+        Map<Long, User> students = userRepository.findAllById(studentIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
         
-        for (MarkAttendanceRequest.StudentAttendance studentAtt : request.getAttendanceList()) {
-            User student = userRepository.findById(studentAtt.getStudentId())
-                    .orElseThrow(() -> new CustomExceptions.UserNotFoundException("Student not found: " + studentAtt.getStudentId()));
+        for (Long studentId : studentIds) {
+            User student = students.get(studentId);
+            if (student == null) {
+                throw new CustomExceptions.UserNotFoundException("Student not found: " + studentId);
+            }
             
             // Validate same department
             if (!student.getDepartment().getId().equals(faculty.getDepartment().getId())) {
                 throw new RuntimeException("Cannot mark attendance for students from other departments");
             }
-            
-            // Check if attendance already exists
-            if (attendanceRepository.existsByStudentIdAndDateAndSubject(
-                    student.getId(), request.getDate(), request.getSubject())) {
-                throw new RuntimeException("Attendance already marked for " + student.getName() + 
-                        " on " + request.getDate() + " for " + request.getSubject());
-            }
-            
+        }
+        
+        // Check the (date, subject) roster against the unique key in one query
+        List<Long> alreadyMarked = attendanceRepository.findMarkedStudentIds(
+                request.getDate(), request.getSubject(), studentIds);
+        if (!alreadyMarked.isEmpty()) {
+            User student = students.get(alreadyMarked.get(0));
+            throw new RuntimeException("Attendance already marked for " + student.getName() + 
+                    " on " + request.getDate() + " for " + request.getSubject());
+        }
+        
+        List<Attendance> attendanceRecords = new ArrayList<>(roster.size());
+        
+        for (MarkAttendanceRequest.StudentAttendance studentAtt : roster) {
             Attendance attendance = new Attendance();
-            attendance.setStudent(student);
+            attendance.setStudent(students.get(studentAtt.getStudentId()));
             attendance.setMarkedBy(faculty);
             attendance.setDate(request.getDate());
             attendance.setStatus(studentAtt.getStatus());
@@ -64,79 +91,64 @@ public class AttendanceService {
             attendanceRecords.add(attendance);
         }
         
-        List<Attendance> savedRecords = attendanceRepository.saveAll(attendanceRecords);
+        attendanceRepository.batchInsert(attendanceRecords);
+        attendanceSummaryService.recordAdded(attendanceRecords);
         
         // Send notifications
-        notifyStudents(savedRecords);
+        notifyStudents(attendanceRecords);
         
-        return savedRecords.stream()
+        return attendanceRecords.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
     public List<AttendanceDTO> getAttendanceByDate(LocalDate date, Long departmentId) {
-        List<Attendance> records = attendanceRepository.findByDateAndDepartment(date, departmentId);
-        return records.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return attendanceRepository.findDTOsByDateAndDepartment(date, departmentId);
     }
     
     public List<AttendanceDTO> getStudentAttendance(Long studentId, LocalDate from, LocalDate to) {
-        List<Attendance> records;
-        
         if (from != null && to != null) {
-            records = attendanceRepository.findByStudentIdAndDateBetween(studentId, from, to);
-        } else {
-            records = attendanceRepository.findByStudentIdOrderByDateDesc(studentId);
+            return attendanceRepository.findDTOsByStudentIdAndDateBetween(studentId, from, to);
         }
-        
-        return records.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return attendanceRepository.findDTOsByStudentId(studentId);
     }
     
     public AttendancePercentageDTO calculatePercentage(Long studentId, LocalDate from, LocalDate to) {
-        List<Attendance> records = attendanceRepository.findByStudentIdAndDateBetween(studentId, from, to);
-        
-        long totalDays = records.size();
-        long presentDays = records.stream()
-                .filter(a -> a.getStatus() == Attendance.AttendanceStatus.PRESENT)
-                .count();
-        long absentDays = records.stream()
-                .filter(a -> a.getStatus() == Attendance.AttendanceStatus.ABSENT)
-                .count();
-        long lateDays = records.stream()
-                .filter(a -> a.getStatus() == Attendance.AttendanceStatus.LATE)
-                .count();
+        AttendanceSummaryService.StatusCounts counts = attendanceSummaryService.countsForStudent(studentId, from, to);
         
-        double percentage = totalDays > 0 ? (presentDays * 100.0 / totalDays) : 0.0;
+        long totalDays = counts.total();
+        double percentage = totalDays > 0 ? (counts.present() * 100.0 / totalDays) : 0.0;
         
-        return new AttendancePercentageDTO(totalDays, presentDays, absentDays, lateDays, percentage);
+        return new AttendancePercentageDTO(totalDays, counts.present(), counts.absent(), counts.late(), percentage);
     }
     
     @Transactional
     public AttendanceDTO updateAttendance(Long id, Attendance.AttendanceStatus status, String remarks) {
-        Attendance attendance = attendanceRepository.findById(id)
+        Attendance attendance = attendanceRepository.findWithUsersById(id)
                 .orElseThrow(() -> new RuntimeException("Attendance record not found"));
         
+        Attendance.AttendanceStatus previous = attendance.getStatus();
         attendance.setStatus(status);
         if (remarks != null) {
             attendance.setRemarks(remarks);
         }
         
         Attendance updated = attendanceRepository.save(attendance);
+        attendanceSummaryService.recordStatusChanged(updated, previous);
         return convertToDTO(updated);
     }
     
     @Transactional
     public void deleteAttendance(Long id) {
-        if (!attendanceRepository.existsById(id)) {
-            throw new RuntimeException("Attendance record not found");
-        }
-        attendanceRepository.deleteById(id);
+        Attendance attendance = attendanceRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Attendance record not found"));
+        attendanceRepository.delete(attendance);
+        attendanceSummaryService.recordRemoved(attendance);
     }
     
     private void notifyStudents(List<Attendance> records) {
+        List<Notification> notifications = new ArrayList<>(records.size());
+        
         for (Attendance record : records) {
             Notification notification = new Notification();
             notification.setUserId(record.getStudent().getId());
@@ -147,10 +159,13 @@ public class AttendanceService {
             notification.setReferenceId(record.getId());
             notification.setIsRead(false);
             
-            notificationRepository.save(notification);
+            notifications.add(notification);
         }
         
-        log.info("Sent attendance notifications to {} students", records.size());
+        // Written in batches once the attendance commits
+        notificationFanoutService.publish(notifications);
+        
+        log.info("Queued attendance notifications for {} students", records.size());
     }
     
     
@@ -161,86 +176,39 @@ public class AttendanceService {
             LocalDate endDate,
             String subject
     ) {
-        List<Attendance> records;
-        
-        if (subject != null && !subject.trim().isEmpty()) {
-            records = attendanceRepository.findByMarkedByIdAndDateBetweenAndSubject(
-                    facultyId, startDate, endDate, subject);
-        } else {
-            records = attendanceRepository.findByMarkedByIdAndDateBetween(
-                    facultyId, startDate, endDate);
+        String subjectFilter = subject != null && !subject.trim().isEmpty() ? subject : null;
+        List<Object[]> rows = attendanceRepository.countByStatusForFaculty(facultyId, startDate, endDate, subjectFilter);
+        
+        // Rows arrive ordered by date and subject, one per status; fold each class into one summary
+        List<AttendanceReportDTO> history = new ArrayList<>();
+        AttendanceReportDTO current = null;
+        for (Object[] row : rows) {
+            // For faculty history, we use date as identifier instead of student info
+            String date = row[0].toString();
+            String rowSubject = (String) row[1];
+            if (current == null || !current.getRollNumber().equals(date)
+                    || !Objects.equals(current.getSubject(), rowSubject)) {
+                current = new AttendanceReportDTO(date, "", rowSubject, 0L, 0L, 0L, 0.0);
+                history.add(current);
+            }
+            
+            long count = ((Number) row[3]).longValue();
+            current.setTotalClasses(current.getTotalClasses() + count);
+            if (row[2] == Attendance.AttendanceStatus.PRESENT) {
+                current.setPresentCount(current.getPresentCount() + count);
+            } else if (row[2] == Attendance.AttendanceStatus.ABSENT) {
+                current.setAbsentCount(current.getAbsentCount() + count);
+            }
         }
         
-        // Group by date and subject to create summary records
-        return records.stream()
-                .collect(Collectors.groupingBy(
-                        a -> a.getDate() + "_" + a.getSubject(),
-                        Collectors.collectingAndThen(
-                                Collectors.toList(),
-                                list -> {
-                                    Attendance first = list.get(0);
-                                    long total = list.size();
-                                    long present = list.stream()
-                                            .filter(a -> a.getStatus() == Attendance.AttendanceStatus.PRESENT)
-                                            .count();
-                                    long absent = list.stream()
-                                            .filter(a -> a.getStatus() == Attendance.AttendanceStatus.ABSENT)
-                                            .count();
-                                    double percentage = total > 0 ? (present * 100.0 / total) : 0.0;
-                                    
-                                    // For faculty history, we use date as identifier instead of student info
-                                    return new AttendanceReportDTO(
-                                            first.getDate().toString(), // Using date as rollNumber field
-                                            "", // Empty studentName since this is grouped by date, not student
-                                            first.getSubject(),
-                                            total,
-                                            present,
-                                            absent,
-                                            percentage
-                                    );
-                                }
-                        )
-                ))
-                .values()
-                .stream()
-                .collect(Collectors.toList());
+        for (AttendanceReportDTO summary : history) {
+            summary.setPercentage(summary.getPresentCount() * 100.0 / summary.getTotalClasses());
+        }
+        return history;
     }
     
     public List<AttendanceReportDTO> getAttendanceReport(Long departmentId, LocalDate startDate, LocalDate endDate) {
-        List<Attendance> records = attendanceRepository.findByDepartmentAndDateBetween(departmentId, startDate, endDate);
-        
-        // Group by student and subject
-        return records.stream()
-                .collect(Collectors.groupingBy(
-                        a -> a.getStudent().getId() + "_" + a.getSubject(),
-                        Collectors.collectingAndThen(
-                                Collectors.toList(),
-                                list -> {
-                                    Attendance first = list.get(0);
-                                    long total = list.size();
-                                    long present = list.stream()
-                                            .filter(a -> a.getStatus() == Attendance.AttendanceStatus.PRESENT)
-                                            .count();
-                                    long absent = list.stream()
-                                            .filter(a -> a.getStatus() == Attendance.AttendanceStatus.ABSENT)
-                                            .count();
-                                    double percentage = total > 0 ? (present * 100.0 / total) : 0.0;
-                                    
-                                    return new AttendanceReportDTO(
-                                            first.getStudent().getRollNumber(),
-                                            first.getStudent().getName(),
-                                            first.getSubject(),
-                                            total,
-                                            present,
-                                            absent,
-                                            percentage
-                                    );
-                                }
-                        )
-                ))
-                .values()
-                .stream()
-                .collect(Collectors.toList());
+        return attendanceSummaryService.departmentReport(departmentId, startDate, endDate);
     }
     
     private AttendanceDTO convertToDTO(Attendance attendance) {
@@ -0,0 +1,244 @@
+package com.campus.service;
+
+import com.campus.dto.AttendanceReportDTO;
+import com.campus.model.Attendance;
+import com.campus.repository.AttendanceRepository;
+import com.campus.repository.AttendanceRepositoryCustom.SummaryDelta;
+import com.campus.repository.AttendanceSummaryRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps attendance_monthly_summary in step with the attendance table and
+ * answers count queries from it.
+ *
+ * Every write to attendance applies its change to the summary in the same
+ * transaction. Reads take whole months inside the requested range from the
+ * summary and count only the partial months at either end from raw rows,
+ * so a year-long report touches at most two months of attendance rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AttendanceSummaryService {
+    
+    private final AttendanceRepository attendanceRepository;
+    private final AttendanceSummaryRepository attendanceSummaryRepository;
+    
+    public void recordAdded(Collection<Attendance> records) {
+        Map<SummaryKey, long[]> changes = new LinkedHashMap<>();
+        for (Attendance record : records) {
+            add(changes, record.getStudent().getId(), record.getSubject(), record.getDate(), record.getStatus(), 1);
+        }
+        apply(changes);
+    }
+    
+    public void recordStatusChanged(Attendance record, Attendance.AttendanceStatus previous) {
+        if (previous == record.getStatus()) {
+            return;
+        }
+        Map<SummaryKey, long[]> changes = new LinkedHashMap<>();
+        add(changes, record.getStudent().getId(), record.getSubject(), record.getDate(), previous, -1);
+        add(changes, record.getStudent().getId(), record.getSubject(), record.getDate(), record.getStatus(), 1);
+        apply(changes);
+    }
+    
+    public void recordRemoved(Attendance record) {
+        Map<SummaryKey, long[]> changes = new LinkedHashMap<>();
+        add(changes, record.getStudent().getId(), record.getSubject(), record.getDate(), record.getStatus(), -1);
+        apply(changes);
+    }
+    
+    /**
+     * Present, absent and late counts for a student between two dates, inclusive.
+     */
+    public StatusCounts countsForStudent(Long studentId, LocalDate from, LocalDate to) {
+        StatusCounts counts = new StatusCounts(0, 0, 0);
+        if (from.isAfter(to)) {
+            return counts;
+        }
+        
+        MonthSplit split = MonthSplit.of(from, to);
+        if (split.hasFullMonths()) {
+            Object[] row = attendanceSummaryRepository.sumForStudent(studentId, split.firstMonth(), split.lastMonth()).get(0);
+            counts = counts.plus(new StatusCounts(toLong(row[0]), toLong(row[1]), toLong(row[2])));
+        }
+        for (LocalDate[] range : split.rawRanges()) {
+            for (Object[] row : attendanceRepository.countByStatusForStudent(studentId, range[0], range[1])) {
+                counts = counts.plus(StatusCounts.of((Attendance.AttendanceStatus) row[0], toLong(row[1])));
+            }
+        }
+        return counts;
+    }
+    
+    /**
+     * One row per student and subject in the department, ordered by roll
+     * number and subject.
+     */
+    public List<AttendanceReportDTO> departmentReport(Long departmentId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return new ArrayList<>();
+        }
+        
+        Map<ReportKey, ReportRow> rows = new LinkedHashMap<>();
+        MonthSplit split = MonthSplit.of(from, to);
+        
+        if (split.hasFullMonths()) {
+            for (Object[] row : attendanceSummaryRepository.sumForDepartment(departmentId, split.firstMonth(), split.lastMonth())) {
+                String subject = ((String) row[3]).isEmpty() ? null : (String) row[3];
+                rows.computeIfAbsent(new ReportKey((Long) row[0], subject),
+                                key -> new ReportRow((String) row[1], (String) row[2], subject))
+                        .add(new StatusCounts(toLong(row[4]), toLong(row[5]), toLong(row[6])));
+            }
+        }
+        for (LocalDate[] range : split.rawRanges()) {
+            for (Object[] row : attendanceRepository.countByStatusForDepartment(departmentId, range[0], range[1])) {
+                String subject = (String) row[3];
+                rows.computeIfAbsent(new ReportKey((Long) row[0], subject),
+                                key -> new ReportRow((String) row[1], (String) row[2], subject))
+                        .add(StatusCounts.of((Attendance.AttendanceStatus) row[4], toLong(row[5])));
+            }
+        }
+        
+        return rows.values().stream()
+                .filter(row -> row.counts.total() > 0)
+                .sorted(Comparator.comparing((ReportRow row) -> row.rollNumber, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(row -> row.subject, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .map(ReportRow::toDTO)
+                .toList();
+    }
+    
+    /**
+     * Fill the summary from existing attendance the first time the
+     * application starts with this table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (attendanceSummaryRepository.count() > 0 || attendanceRepository.count() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        int rows = attendanceRepository.rebuildSummaries();
+        log.info("Rebuilt attendance summary ({} rows) in {} ms", rows, (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    private void add(Map<SummaryKey, long[]> changes, Long studentId, String subject, LocalDate date,
+                     Attendance.AttendanceStatus status, int amount) {
+        long[] counts = changes.computeIfAbsent(
+                new SummaryKey(studentId, subject != null ? subject : "", date.withDayOfMonth(1)),
+                key -> new long[3]);
+        counts[status.ordinal()] += amount;
+    }
+    
+    private void apply(Map<SummaryKey, long[]> changes) {
+        List<SummaryDelta> deltas = new ArrayList<>(changes.size());
+        changes.forEach((key, counts) -> {
+            if (counts[0] != 0 || counts[1] != 0 || counts[2] != 0) {
+                deltas.add(new SummaryDelta(key.studentId(), key.subject(), key.monthStart(),
+                        counts[Attendance.AttendanceStatus.PRESENT.ordinal()],
+                        counts[Attendance.AttendanceStatus.ABSENT.ordinal()],
+                        counts[Attendance.AttendanceStatus.LATE.ordinal()]));
+            }
+        });
+        attendanceRepository.applySummaryDeltas(deltas);
+    }
+    
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+    
+    public record StatusCounts(long present, long absent, long late) {
+        
+        static StatusCounts of(Attendance.AttendanceStatus status, long count) {
+            return switch (status) {
+                case PRESENT -> new StatusCounts(count, 0, 0);
+                case ABSENT -> new StatusCounts(0, count, 0);
+                case LATE -> new StatusCounts(0, 0, count);
+            };
+        }
+        
+        StatusCounts plus(StatusCounts other) {
+            return new StatusCounts(present + other.present, absent + other.absent, late + other.late);
+        }
+        
+        public long total() {
+            return present + absent + late;
+        }
+    }
+    
+    private record SummaryKey(Long studentId, String subject, LocalDate monthStart) {
+    }
+    
+    private record ReportKey(Long studentId, String subject) {
+    }
+    
+    private static final class ReportRow {
+        
+        private final String rollNumber;
+        private final String studentName;
+        private final String subject;
+        private StatusCounts counts = new StatusCounts(0, 0, 0);
+        
+        ReportRow(String rollNumber, String studentName, String subject) {
+            this.rollNumber = rollNumber;
+            this.studentName = studentName;
+            this.subject = subject;
+        }
+        
+        void add(StatusCounts more) {
+            counts = counts.plus(more);
+        }
+        
+        AttendanceReportDTO toDTO() {
+            long total = counts.total();
+            double percentage = total > 0 ? (counts.present() * 100.0 / total) : 0.0;
+            return new AttendanceReportDTO(rollNumber, studentName, subject, total,
+                    counts.present(), counts.absent(), percentage);
+        }
+    }
+    
+    /**
+     * Splits a date range into the whole months it covers and the partial
+     * months at either end.
+     */
+    private record MonthSplit(LocalDate firstMonth, LocalDate lastMonth, List<LocalDate[]> rawRanges) {
+        
+        static MonthSplit of(LocalDate from, LocalDate to) {
+            LocalDate firstMonth = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+            LocalDate lastMonth = to.getDayOfMonth() == to.lengthOfMonth()
+                    ? to.withDayOfMonth(1)
+                    : to.withDayOfMonth(1).minusMonths(1);
+            
+            List<LocalDate[]> raw = new ArrayList<>(2);
+            if (firstMonth.isAfter(lastMonth)) {
+                raw.add(new LocalDate[] {from, to});
+                return new MonthSplit(null, null, raw);
+            }
+            if (from.isBefore(firstMonth)) {
+                raw.add(new LocalDate[] {from, firstMonth.minusDays(1)});
+            }
+            LocalDate afterLast = lastMonth.plusMonths(1);
+            if (!afterLast.isAfter(to)) {
+                raw.add(new LocalDate[] {afterLast, to});
+            }
+            return new MonthSplit(firstMonth, lastMonth, raw);
+        }
+        
+        boolean hasFullMonths() {
+            return firstMonth != null;
+        }
+    }
+}
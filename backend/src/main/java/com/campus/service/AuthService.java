@@ -12,6 +12,7 @@ import com.campus.repository.PasswordResetRequestRepository;
 import com.campus.repository.RefreshTokenRepository;
 import com.campus.repository.UserRepository;
 import com.campus.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -68,9 +69,8 @@ public class AuthService {
     @Transactional
     public LoginResponse refreshAccessToken(String refreshToken) {
         // Validate refresh token
-        if (!tokenProvider.validateToken(refreshToken)) {
-            throw new CustomExceptions.InvalidTokenException("Invalid refresh token");
-        }
+        Claims claims = tokenProvider.verify(refreshToken)
+                .orElseThrow(() -> new CustomExceptions.InvalidTokenException("Invalid refresh token"));
         
         // Check if token exists in database
         RefreshToken storedToken = refreshTokenRepository.findByToken(refreshToken)
@@ -83,7 +83,7 @@ public class AuthService {
         }
         
         // Get user
-        Long userId = tokenProvider.getUserIdFromToken(refreshToken);
+        Long userId = Long.parseLong(claims.getSubject());
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new CustomExceptions.UserNotFoundException("User not found"));
         
@@ -1,36 +1,86 @@
 package com.campus.service;
 
+import com.campus.event.ChatGroupMembershipChangedEvent;
+import com.campus.event.UserChangedEvent;
 import com.campus.model.ChatMessage;
 import com.campus.model.User;
 import com.campus.repository.ChatParticipantRepository;
 import com.campus.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Group chat permissions, answered from memory.
+ *
+ * Holds each user's role and department and, per department, the faculty
+ * and admins who have joined its group chat. Both are loaded on startup
+ * and kept current from {@link UserChangedEvent} and
+ * {@link ChatGroupMembershipChangedEvent}, each of which reloads the one
+ * user concerned. Checks are plain concurrent map reads; until the first
+ * load finishes they fall back to the database.
+ *
+ * Those events are local to the node that made the change. With several
+ * nodes behind the broker relay, the others pick it up at their next
+ * refresh (app.chat.permissions.refresh-ms), which reloads only users whose
+ * updated_at moved since the previous one; joining or leaving a group
+ * touches it too. Until then they may still let students post in a group
+ * a faculty member has just joined elsewhere. The full load only runs on
+ * startup.
+ */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ChatPermissionService {
     
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(2);
+    
     private final UserRepository userRepository;
     private final ChatParticipantRepository chatParticipantRepository;
     
+    private volatile Map<Long, Member> members = new ConcurrentHashMap<>();
+    private volatile Map<Long, Set<Long>> monitorsByDepartment = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private LocalDateTime loadedAt;
+    
     /**
      * Check if user can post in a group chat
      */
     public boolean canPostInGroup(Long userId, ChatMessage.ChatType chatType, Long departmentId) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) return false;
+        Member member = member(userId);
+        if (member == null) return false;
         
+        return canPostInGroup(member.role(), member.departmentId(), chatType, departmentId);
+    }
+    
+    /**
+     * Same check for a user whose role and department are already known,
+     * e.g. from the STOMP session principal
+     */
+    public boolean canPostInGroup(User.Role role, Long userDepartmentId, ChatMessage.ChatType chatType, Long departmentId) {
         // Verify user is in the department
-        if (!user.getDepartment().getId().equals(departmentId)) {
+        if (userDepartmentId == null || !userDepartmentId.equals(departmentId)) {
             return false;
         }
         
         switch (chatType) {
             case FACULTY_STUDENT_GROUP:
-                return canPostInFacultyStudentGroup(user);
+                return canPostInFacultyStudentGroup(role);
             case DEPARTMENT_GROUP:
-                return canPostInStudentGroup(user, departmentId);
+                return canPostInStudentGroup(role, departmentId);
             case ONE_TO_ONE:
                 return true; // One-to-one always allowed
             default:
@@ -41,19 +91,19 @@ public class ChatPermissionService {
     /**
      * Faculty and Admin can post in Faculty-Student group
      */
-    public boolean canPostInFacultyStudentGroup(User user) {
-        return user.getRole() == User.Role.FACULTY || user.getRole() == User.Role.ADMIN;
+    public boolean canPostInFacultyStudentGroup(User.Role role) {
+        return role == User.Role.FACULTY || role == User.Role.ADMIN;
     }
     
     /**
      * Students can post in Student group ONLY if no faculty is monitoring
      */
-    public boolean canPostInStudentGroup(User user, Long departmentId) {
-        if (user.getRole() == User.Role.FACULTY || user.getRole() == User.Role.ADMIN) {
+    public boolean canPostInStudentGroup(User.Role role, Long departmentId) {
+        if (role == User.Role.FACULTY || role == User.Role.ADMIN) {
             return true; // Faculty/Admin can always post
         }
         
-        if (user.getRole() == User.Role.STUDENT) {
+        if (role == User.Role.STUDENT) {
             // Check if any faculty is monitoring this group
             boolean facultyMonitoring = isFacultyMonitoring(departmentId);
             return !facultyMonitoring; // Students can post only if no faculty monitoring
@@ -66,20 +116,159 @@ public class ChatPermissionService {
      * Check if any faculty is monitoring the student group
      */
     public boolean isFacultyMonitoring(Long departmentId) {
-        // Check if any faculty/admin has joined the department group
-        return chatParticipantRepository.existsByDepartmentIdAndChatTypeAndUserRole(
-            departmentId,
-            ChatMessage.ChatType.DEPARTMENT_GROUP
-        );
+        if (!loaded) {
+            return chatParticipantRepository.existsByDepartmentIdAndChatTypeAndUserRole(
+                departmentId,
+                ChatMessage.ChatType.DEPARTMENT_GROUP
+            );
+        }
+        Set<Long> monitors = monitorsByDepartment.get(departmentId);
+        return monitors != null && !monitors.isEmpty();
     }
     
     /**
      * All department members can read group messages
      */
     public boolean canReadGroup(Long userId, Long departmentId) {
+        Member member = member(userId);
+        if (member == null) return false;
+        
+        return departmentId.equals(member.departmentId());
+    }
+    
+    /**
+     * Load every user's role and department and all group monitors.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        load();
+        log.info("Loaded chat permissions for {} users and {} monitored groups in {} ms",
+                members.size(), monitorsByDepartment.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    /**
+     * Reload users changed since the last load or refresh, picking up
+     * changes made through other nodes.
+     */
+    @Scheduled(initialDelayString = "${app.chat.permissions.refresh-ms:30000}",
+               fixedDelayString = "${app.chat.permissions.refresh-ms:30000}")
+    public synchronized void refresh() {
+        if (!loaded) {
+            return;
+        }
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        // Overlap so changes committed late, or stamped by a node whose clock
+        // lags, are not missed; reloading a user twice is harmless
+        List<Object[]> changed = userRepository.findRolesAndDepartmentsUpdatedSince(loadedAt.minus(REFRESH_OVERLAP));
+        loadedAt = now;
+        if (changed.isEmpty()) {
+            return;
+        }
+        
+        List<Long> userIds = new ArrayList<>(changed.size());
+        for (Object[] row : changed) {
+            userIds.add((Long) row[0]);
+            members.put((Long) row[0], new Member((User.Role) row[1], (Long) row[2]));
+        }
+        Map<Long, Set<Long>> joinedByUser = new ConcurrentHashMap<>();
+        for (Object[] row : chatParticipantRepository.findMonitorsAmong(ChatMessage.ChatType.DEPARTMENT_GROUP, userIds)) {
+            if (row[0] != null) {
+                joinedByUser.computeIfAbsent((Long) row[1], id -> new HashSet<>()).add((Long) row[0]);
+            }
+        }
+        for (Long userId : userIds) {
+            setMonitoredDepartments(userId, joinedByUser.getOrDefault(userId, Set.of()));
+        }
+        log.debug("Refreshed chat permissions of {} changed users in {} ms", userIds.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    // Built aside and swapped in, so checks never see a half-loaded state
+    private synchronized void load() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Member> loadedMembers = new ConcurrentHashMap<>();
+        for (Object[] row : userRepository.findAllRolesAndDepartments()) {
+            loadedMembers.put((Long) row[0], new Member((User.Role) row[1], (Long) row[2]));
+        }
+        
+        Map<Long, Set<Long>> loadedMonitors = new ConcurrentHashMap<>();
+        for (Object[] row : chatParticipantRepository.findMonitors(ChatMessage.ChatType.DEPARTMENT_GROUP)) {
+            if (row[0] != null) {
+                loadedMonitors.computeIfAbsent((Long) row[0], id -> ConcurrentHashMap.newKeySet()).add((Long) row[1]);
+            }
+        }
+        members = loadedMembers;
+        monitorsByDepartment = loadedMonitors;
+        loadedAt = now;
+        loaded = true;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        reload(event.getUserId());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGroupMembershipChanged(ChatGroupMembershipChangedEvent event) {
+        reload(event.getUserId());
+    }
+    
+    /**
+     * Replace one user's entries with what the database now says.
+     */
+    private synchronized void reload(Long userId) {
         User user = userRepository.findById(userId).orElse(null);
-        if (user == null) return false;
+        if (user == null) {
+            members.remove(userId);
+        } else {
+            members.put(userId, Member.of(user));
+        }
+        
+        boolean monitor = user != null && (user.getRole() == User.Role.FACULTY || user.getRole() == User.Role.ADMIN);
+        Set<Long> joined = new HashSet<>();
+        if (monitor) {
+            for (Long departmentId : chatParticipantRepository.findDepartmentIdsByUserIdAndChatType(
+                    userId, ChatMessage.ChatType.DEPARTMENT_GROUP)) {
+                if (departmentId != null) {
+                    joined.add(departmentId);
+                }
+            }
+        }
+        setMonitoredDepartments(userId, joined);
+    }
+    
+    private void setMonitoredDepartments(Long userId, Set<Long> joined) {
+        monitorsByDepartment.forEach((departmentId, monitors) -> {
+            if (!joined.contains(departmentId)) {
+                monitors.remove(userId);
+            }
+        });
+        for (Long departmentId : joined) {
+            monitorsByDepartment.computeIfAbsent(departmentId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+    }
+    
+    // Users created after the last load are not in the map yet
+    private Member member(Long userId) {
+        Member member = members.get(userId);
+        if (member != null) {
+            return member;
+        }
+        return userRepository.findById(userId)
+                .map(user -> {
+                    Member loadedMember = Member.of(user);
+                    members.putIfAbsent(userId, loadedMember);
+                    return loadedMember;
+                })
+                .orElse(null);
+    }
+    
+    private record Member(User.Role role, Long departmentId) {
         
-        return user.getDepartment().getId().equals(departmentId);
+        static Member of(User user) {
+            return new Member(user.getRole(), user.getDepartment() != null ? user.getDepartment().getId() : null);
+        }
     }
 }
@@ -0,0 +1,128 @@
+package com.campus.service;
+
+import com.campus.dto.ChatSearchHitDTO;
+import com.campus.repository.ChatMessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Full-text search over chat history.
+ *
+ * Messages are indexed by a MySQL FULLTEXT index on chat_messages.message,
+ * which InnoDB updates as each message is committed, so a new message is
+ * searchable as soon as it is saved. Hibernate cannot declare FULLTEXT
+ * indexes, so the index comes from database/chat_search_schema.sql; adding
+ * it rebuilds chat_messages and blocks writes to it meanwhile, so it is
+ * only created on startup when app.chat.search.create-index-on-startup
+ * says so. Results are limited to the user's department groups and their
+ * own one-to-one conversations, newest first, and paged by message id
+ * like chat history so later pages do not re-read earlier ones.
+ */
+@Service
+@Slf4j
+public class ChatSearchService {
+    
+    /** Search terms used from one query; the rest are ignored. */
+    private static final int MAX_TERMS = 8;
+    
+    /** innodb_ft_min_token_size at its default. */
+    private static final int MIN_PREFIX_LENGTH = 3;
+    
+    private final ChatMessageRepository chatMessageRepository;
+    private final int maxPageSize;
+    private final boolean createIndexOnStartup;
+    
+    public ChatSearchService(
+            ChatMessageRepository chatMessageRepository,
+            @Value("${app.chat.search.max-page-size:50}") int maxPageSize,
+            @Value("${app.chat.search.create-index-on-startup:false}") boolean createIndexOnStartup
+    ) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.maxPageSize = maxPageSize;
+        this.createIndexOnStartup = createIndexOnStartup;
+    }
+    
+    /**
+     * Up to {@code limit} messages containing every word of {@code query},
+     * older than {@code beforeId} when given. The last word also matches as
+     * a prefix once it is long enough to be indexed.
+     */
+    public List<ChatSearchHitDTO> search(Long userId, Long departmentId, String query, Long beforeId, int limit) {
+        String booleanQuery = toBooleanQuery(query);
+        if (booleanQuery == null) {
+            return List.of();
+        }
+        
+        long start = System.nanoTime();
+        List<ChatSearchHitDTO> hits = chatMessageRepository.searchMessages(
+                booleanQuery, userId, departmentId, beforeId, Math.min(Math.max(limit, 1), maxPageSize));
+        log.debug("Chat search for user {} returned {} hits in {} ms", userId, hits.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return hits;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkIndex() {
+        if (chatMessageRepository.hasFullTextIndex()) {
+            return;
+        }
+        if (!createIndexOnStartup) {
+            log.warn("Chat message full-text index is missing; apply database/chat_search_schema.sql "
+                    + "before using chat search");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chatMessageRepository.createFullTextIndex();
+        } catch (DataAccessException ex) {
+            // Another node starting at the same time may have added it first
+            if (!chatMessageRepository.hasFullTextIndex()) {
+                throw ex;
+            }
+            log.info("Chat message full-text index was created by another node");
+            return;
+        }
+        log.info("Created chat message full-text index in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    /**
+     * Turn user input into a boolean-mode query requiring every word. Only
+     * letters and digits are kept, so operators typed by the user cannot
+     * change the query. Returns null when nothing searchable is left.
+     */
+    private String toBooleanQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder booleanQuery = new StringBuilder();
+        String lastTerm = null;
+        int terms = 0;
+        for (String term : query.split("[^\\p{L}\\p{N}]+")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (booleanQuery.length() > 0) {
+                booleanQuery.append(' ');
+            }
+            booleanQuery.append('+').append(term);
+            lastTerm = term;
+            if (++terms == MAX_TERMS) {
+                break;
+            }
+        }
+        if (terms == 0) {
+            return null;
+        }
+        // Shorter prefixes are not indexed and would only widen the match set
+        if (lastTerm.length() >= MIN_PREFIX_LENGTH) {
+            booleanQuery.append('*');
+        }
+        return booleanQuery.toString();
+    }
+}
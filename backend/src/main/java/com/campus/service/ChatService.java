@@ -2,28 +2,43 @@ package com.campus.service;
 
 import com.campus.dto.ChatMessageDTO;
 import com.campus.dto.ConversationDTO;
+import com.campus.dto.GroupUnreadDTO;
 import com.campus.dto.SendGroupMessageRequest;
 import com.campus.dto.SendMessageRequest;
+import com.campus.dto.UnreadCountsDTO;
+import com.campus.event.ChatGroupMembershipChangedEvent;
+import com.campus.event.UserChangedEvent;
 import com.campus.exception.CustomExceptions;
 import com.campus.model.ChatMessage;
 import com.campus.model.ChatParticipant;
-import com.campus.model.Department;
 import com.campus.model.User;
 import com.campus.repository.ChatMessageRepository;
 import com.campus.repository.ChatParticipantRepository;
 import com.campus.repository.DepartmentRepository;
 import com.campus.repository.UserRepository;
+import com.campus.security.StompPrincipal;
+import com.campus.util.TtlCache;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ChatService {
     
@@ -31,36 +46,57 @@ public class ChatService {
     private final ChatParticipantRepository chatParticipantRepository;
     private final UserRepository userRepository;
     private final DepartmentRepository departmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    /** Conversation list per user; evicted on every change to that user's inbox. */
+    private final TtlCache<Long, List<ConversationDTO>> conversationCache;
+    
+    private static final int MAX_HISTORY_PAGE = 200;
+    
+    public ChatService(
+            ChatMessageRepository chatMessageRepository,
+            ChatParticipantRepository chatParticipantRepository,
+            UserRepository userRepository,
+            DepartmentRepository departmentRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.chat.conversation-cache.max-users:1000}") int cacheMaxUsers,
+            @Value("${app.chat.conversation-cache.ttl-seconds:60}") long cacheTtlSeconds
+    ) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatParticipantRepository = chatParticipantRepository;
+        this.userRepository = userRepository;
+        this.departmentRepository = departmentRepository;
+        this.eventPublisher = eventPublisher;
+        this.conversationCache = new TtlCache<>(cacheMaxUsers, Duration.ofSeconds(cacheTtlSeconds));
+    }
     
     @Transactional
-    public ChatMessageDTO saveMessage(SendMessageRequest request, Long senderId) {
-        User sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new CustomExceptions.UserNotFoundException("Sender not found"));
-        
+    public ChatMessageDTO saveMessage(SendMessageRequest request, StompPrincipal sender) {
         User receiver = userRepository.findById(request.getReceiverId())
                 .orElseThrow(() -> new CustomExceptions.UserNotFoundException("Receiver not found"));
         
         // Validate: same department
-        if (!sender.getDepartment().getId().equals(receiver.getDepartment().getId())) {
+        if (receiver.getDepartment() == null || !receiver.getDepartment().getId().equals(sender.departmentId())) {
             throw new RuntimeException("Cannot chat with users from different departments");
         }
         
-        // Create and save message
+        // Create and save message; the sender is known from the session, so only a reference is needed
         ChatMessage message = new ChatMessage();
-        message.setSender(sender);
+        message.setSender(userRepository.getReferenceById(sender.userId()));
         message.setReceiver(receiver);
         message.setMessage(request.getMessage());
         message.setChatType(ChatMessage.ChatType.ONE_TO_ONE);
-        message.setDepartment(sender.getDepartment());
+        message.setDepartment(receiver.getDepartment());
         message.setIsRead(false);
         
         ChatMessage savedMessage = chatMessageRepository.save(message);
         
         // Update chat participants
-        updateChatParticipant(sender.getId(), receiver.getId(), savedMessage.getId(), false);
-        updateChatParticipant(receiver.getId(), sender.getId(), savedMessage.getId(), true);
+        updateChatParticipant(sender.userId(), receiver.getId(), savedMessage.getId(), false);
+        updateChatParticipant(receiver.getId(), sender.userId(), savedMessage.getId(), true);
+        evictConversations(sender.userId(), receiver.getId());
         
-        return convertToDTO(savedMessage);
+        return convertToDTO(savedMessage, sender.displayName());
     }
     
     private void updateChatParticipant(Long userId, Long otherUserId, Long messageId, boolean incrementUnread) {
@@ -78,38 +114,36 @@ public class ChatService {
     }
     
     public List<ConversationDTO> getConversations(Long userId) {
-        List<ChatParticipant> participants = chatParticipantRepository.findByUserIdOrderByUpdatedAtDesc(userId);
-        
-        List<ConversationDTO> conversations = new ArrayList<>();
-        
-        for (ChatParticipant participant : participants) {
-            User otherUser = userRepository.findById(participant.getOtherUserId())
-                    .orElse(null);
-            
-            if (otherUser == null) continue;
-            
-            ChatMessage lastMessage = null;
-            if (participant.getLastMessageId() != null) {
-                lastMessage = chatMessageRepository.findById(participant.getLastMessageId())
-                        .orElse(null);
+        return conversationCache.get(userId, id -> List.copyOf(
+                chatParticipantRepository.findConversationSummaries(id, ChatMessage.ChatType.ONE_TO_ONE)));
+    }
+    
+    private void evictConversations(Long... userIds) {
+        Runnable evict = () -> {
+            for (Long userId : userIds) {
+                conversationCache.invalidate(userId);
             }
-            
-            ConversationDTO dto = new ConversationDTO();
-            dto.setId(participant.getId());
-            dto.setOtherUserId(otherUser.getId());
-            dto.setOtherUserName(otherUser.getName());
-            dto.setOtherUserRole(otherUser.getRole().toString());
-            dto.setLastMessage(lastMessage != null ? lastMessage.getMessage() : "");
-            dto.setUnreadCount(participant.getUnreadCount());
-            dto.setUpdatedAt(participant.getUpdatedAt());
-            
-            conversations.add(dto);
-        }
+        };
         
-        return conversations;
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Evict again once the new state is visible to other readers
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
     }
     
-    public List<ChatMessageDTO> getMessageHistory(Long userId, Long otherUserId) {
+    /**
+     * One window of the conversation between two users, oldest first.
+     * With no cursor the latest messages are returned; {@code beforeId}
+     * pages back through older history and {@code afterId} fetches anything
+     * newer than the last message the client has.
+     */
+    public List<ChatMessageDTO> getMessageHistory(Long userId, Long otherUserId, Long beforeId, Long afterId, int limit) {
         // Validate users are in same department
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new CustomExceptions.UserNotFoundException("User not found"));
@@ -120,7 +154,27 @@ public class ChatService {
             throw new RuntimeException("Cannot view messages from users in different departments");
         }
         
-        List<ChatMessage> messages = chatMessageRepository.findMessageHistory(userId, otherUserId);
+        // Each direction is a range scan on (sender_id, receiver_id, id);
+        // the two pages are merged here rather than with an OR in SQL
+        Pageable page = historyPage(beforeId, afterId, limit);
+        List<ChatMessage> messages = new ArrayList<>();
+        if (afterId != null) {
+            messages.addAll(chatMessageRepository.findSentAfter(userId, otherUserId, afterId, page));
+            messages.addAll(chatMessageRepository.findSentAfter(otherUserId, userId, afterId, page));
+            messages.sort(Comparator.comparing(ChatMessage::getId));
+            messages = messages.subList(0, Math.min(messages.size(), page.getPageSize()));
+        } else {
+            if (beforeId != null) {
+                messages.addAll(chatMessageRepository.findSentBefore(userId, otherUserId, beforeId, page));
+                messages.addAll(chatMessageRepository.findSentBefore(otherUserId, userId, beforeId, page));
+            } else {
+                messages.addAll(chatMessageRepository.findLatestSent(userId, otherUserId, page));
+                messages.addAll(chatMessageRepository.findLatestSent(otherUserId, userId, page));
+            }
+            messages.sort(Comparator.comparing(ChatMessage::getId).reversed());
+            messages = reversed(messages.subList(0, Math.min(messages.size(), page.getPageSize())));
+        }
+        
         return messages.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
@@ -140,6 +194,89 @@ public class ChatService {
             participant.setUnreadCount(0);
             chatParticipantRepository.save(participant);
         }
+        evictConversations(userId);
+    }
+    
+    /**
+     * Group counterpart of {@link #markMessagesAsRead(Long, Long)}: move the
+     * user's watermark up to {@code upToSeq}, or to the newest message when
+     * null. Watermarks never move back.
+     */
+    @Transactional
+    public void markMessagesAsRead(Long userId, Long userDepartmentId, Long departmentId,
+                                   ChatMessage.ChatType chatType, Long upToSeq) {
+        if (chatType == ChatMessage.ChatType.ONE_TO_ONE) {
+            throw new RuntimeException("Not a group chat");
+        }
+        if (userDepartmentId == null || !userDepartmentId.equals(departmentId)) {
+            throw new RuntimeException("Cannot read other department's group");
+        }
+        
+        Long lastSeq = chatMessageRepository.findLastGroupSeq(departmentId, chatType).orElse(null);
+        if (lastSeq == null) {
+            return;
+        }
+        long seq = upToSeq != null ? Math.min(upToSeq, lastSeq) : lastSeq;
+        if (seq > 0) {
+            chatMessageRepository.advanceGroupRead(userId, departmentId, chatType, seq);
+        }
+    }
+    
+    /**
+     * Unread one-to-one total and per-group unread counts, each group
+     * computed from its sequence and the user's watermark in one query.
+     * Watermarks are created when a user joins a department; a group still
+     * without one (e.g. for imported users) counts as caught up until the
+     * user first marks it read. Never writes.
+     */
+    public UnreadCountsDTO getUnreadCounts(Long userId, Long departmentId) {
+        Long direct = chatParticipantRepository.sumUnreadCounts(userId, ChatMessage.ChatType.ONE_TO_ONE);
+        
+        List<GroupUnreadDTO> groups = new ArrayList<>();
+        if (departmentId != null) {
+            for (Object[] row : chatMessageRepository.findGroupReadState(userId, departmentId)) {
+                long lastSeq = (Long) row[1];
+                long lastReadSeq = row[2] != null ? (Long) row[2] : lastSeq;
+                groups.add(new GroupUnreadDTO(departmentId, (ChatMessage.ChatType) row[0], lastSeq, lastReadSeq,
+                        Math.max(0, lastSeq - lastReadSeq)));
+            }
+        }
+        return new UnreadCountsDTO(direct != null ? direct : 0L, groups);
+    }
+    
+    /**
+     * Start watermarks in the user's department at the current end of its
+     * group chats, so history from before they joined is not unread. Those
+     * from a department the user has left would count everything since as
+     * unread if they moved back, so drop them.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void onUserChanged(UserChangedEvent event) {
+        userRepository.findById(event.getUserId()).ifPresent(user -> {
+            Long departmentId = user.getDepartment() != null ? user.getDepartment().getId() : null;
+            chatMessageRepository.deleteGroupReadsOutside(user.getId(), departmentId);
+            if (departmentId != null) {
+                chatMessageRepository.initGroupReads(user.getId(), departmentId);
+            }
+        });
+    }
+    
+    /**
+     * Number group messages written before sequences existed, the first
+     * time the application starts with them. Existing history counts as
+     * read for current users.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillGroupSequencesIfEmpty() {
+        if (chatMessageRepository.countGroupSequences() > 0
+                || !chatMessageRepository.existsByChatTypeNot(ChatMessage.ChatType.ONE_TO_ONE)) {
+            return;
+        }
+        long start = System.nanoTime();
+        int groups = chatMessageRepository.backfillGroupSequences();
+        log.info("Numbered messages of {} group chats in {} ms", groups, (System.nanoTime() - start) / 1_000_000);
     }
     
     public List<User> getChatUsers(Long userId) {
@@ -154,36 +291,53 @@ public class ChatService {
     }
     
     @Transactional
-    public ChatMessageDTO saveGroupMessage(SendGroupMessageRequest request, Long senderId) {
-        User sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new CustomExceptions.UserNotFoundException("Sender not found"));
-        
-        Department department = departmentRepository.findById(request.getDepartmentId())
-                .orElseThrow(() -> new RuntimeException("Department not found"));
-        
+    public ChatMessageDTO saveGroupMessage(SendGroupMessageRequest request, StompPrincipal sender) {
         // Validate: user is in the department
-        if (!sender.getDepartment().getId().equals(department.getId())) {
+        if (sender.departmentId() == null || !sender.departmentId().equals(request.getDepartmentId())) {
             throw new RuntimeException("Cannot post in other department's group");
         }
+        if (request.getChatType() == ChatMessage.ChatType.ONE_TO_ONE) {
+            throw new RuntimeException("Not a group chat");
+        }
         
-        // Create and save group message
+        // Create and save group message; sender and department exist, so only references are needed
         ChatMessage message = new ChatMessage();
-        message.setSender(sender);
+        message.setSender(userRepository.getReferenceById(sender.userId()));
         message.setReceiver(null); // No specific receiver for group messages
         message.setMessage(request.getMessage());
         message.setChatType(request.getChatType());
-        message.setDepartment(department);
+        message.setDepartment(departmentRepository.getReferenceById(sender.departmentId()));
         message.setIsRead(false);
         
         ChatMessage savedMessage = chatMessageRepository.save(message);
         
-        return convertToDTO(savedMessage);
+        // The sequence row stays locked until commit, so messages are numbered in
+        // commit order; taking it last keeps only the two writes below and the
+        // commit behind the lock, not the insert
+        long seq = chatMessageRepository.nextGroupSeq(sender.departmentId(), request.getChatType());
+        savedMessage.setGroupSeq(seq);
+        
+        // The sender has read their own message
+        chatMessageRepository.advanceGroupRead(sender.userId(), sender.departmentId(), request.getChatType(), seq);
+        
+        return convertToDTO(savedMessage, sender.displayName());
     }
     
-    public List<ChatMessageDTO> getGroupMessages(Long departmentId, ChatMessage.ChatType chatType) {
-        List<ChatMessage> messages = chatMessageRepository.findByDepartmentIdAndChatTypeOrderByCreatedAtAsc(
-            departmentId, chatType
-        );
+    /**
+     * One window of a department group chat, oldest first. Cursors work as
+     * in {@link #getMessageHistory}.
+     */
+    public List<ChatMessageDTO> getGroupMessages(Long departmentId, ChatMessage.ChatType chatType,
+                                                 Long beforeId, Long afterId, int limit) {
+        Pageable page = historyPage(beforeId, afterId, limit);
+        List<ChatMessage> messages;
+        if (afterId != null) {
+            messages = chatMessageRepository.findGroupMessagesAfter(departmentId, chatType, afterId, page);
+        } else if (beforeId != null) {
+            messages = reversed(chatMessageRepository.findGroupMessagesBefore(departmentId, chatType, beforeId, page));
+        } else {
+            messages = reversed(chatMessageRepository.findLatestGroupMessages(departmentId, chatType, page));
+        }
         
         return messages.stream()
                 .map(this::convertToDTO)
@@ -194,16 +348,65 @@ public class ChatService {
         return userRepository.findByDepartmentId(departmentId);
     }
     
+    /**
+     * Join a department's group chat. Faculty and admins who have joined
+     * are monitoring it, which stops students from posting there.
+     */
+    @Transactional
+    public void joinGroup(Long userId, Long departmentId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new CustomExceptions.UserNotFoundException("User not found"));
+        if (user.getDepartment() == null || !user.getDepartment().getId().equals(departmentId)) {
+            throw new RuntimeException("Cannot join other department's group");
+        }
+        // The unique key on (user_id, chat_type, department_id) makes repeated joins no-ops
+        if (chatParticipantRepository.insertGroupMembership(
+                userId, ChatMessage.ChatType.DEPARTMENT_GROUP.name(), departmentId) > 0) {
+            // Other nodes find membership changes through the user's updated_at
+            userRepository.touch(userId);
+            eventPublisher.publishEvent(new ChatGroupMembershipChangedEvent(userId, departmentId));
+        }
+    }
+    
+    @Transactional
+    public void leaveGroup(Long userId, Long departmentId) {
+        int removed = chatParticipantRepository.deleteGroupMembership(
+                userId, ChatMessage.ChatType.DEPARTMENT_GROUP, departmentId);
+        if (removed > 0) {
+            userRepository.touch(userId);
+            eventPublisher.publishEvent(new ChatGroupMembershipChangedEvent(userId, departmentId));
+        }
+    }
+    
+    private Pageable historyPage(Long beforeId, Long afterId, int limit) {
+        if (beforeId != null && afterId != null) {
+            throw new RuntimeException("Use either before or after, not both");
+        }
+        return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_HISTORY_PAGE)));
+    }
+    
+    private List<ChatMessage> reversed(List<ChatMessage> newestFirst) {
+        List<ChatMessage> messages = new ArrayList<>(newestFirst);
+        Collections.reverse(messages);
+        return messages;
+    }
+    
     private ChatMessageDTO convertToDTO(ChatMessage message) {
+        return convertToDTO(message, message.getSender().getName());
+    }
+    
+    // For messages whose sender is only a reference, so the name must not be read from it
+    private ChatMessageDTO convertToDTO(ChatMessage message, String senderName) {
         ChatMessageDTO dto = new ChatMessageDTO();
         dto.setId(message.getId());
         dto.setSenderId(message.getSender().getId());
-        dto.setSenderName(message.getSender().getName());
+        dto.setSenderName(senderName);
         dto.setReceiverId(message.getReceiver() != null ? message.getReceiver().getId() : null);
         dto.setReceiverName(message.getReceiver() != null ? message.getReceiver().getName() : null);
         dto.setMessage(message.getMessage());
         dto.setIsRead(message.getIsRead());
         dto.setCreatedAt(message.getCreatedAt());
+        dto.setGroupSeq(message.getGroupSeq());
         return dto;
     }
 }
@@ -0,0 +1,87 @@
+package com.campus.service;
+
+import com.campus.repository.StudyMaterialRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts study material downloads in memory and writes them to the
+ * database in periodic batches.
+ *
+ * The request path only increments a per-material LongAdder, so it never
+ * touches the study_materials row. A flush subtracts exactly what it read
+ * from each adder, so downloads recorded while it runs are kept for the
+ * next one. The deltas are written in one transaction; if it fails they
+ * are all added back. Counters left at zero by a successful flush are
+ * removed, so only recently downloaded materials are held. Pending counts
+ * are flushed once more on shutdown; a crash loses at most one interval.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DownloadCounterService {
+    
+    private final StudyMaterialRepository studyMaterialRepository;
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    
+    public void recordDownload(Long materialId) {
+        // Incremented inside compute so a flush cannot remove the counter in between
+        pending.compute(materialId, (id, adder) -> {
+            LongAdder counter = adder != null ? adder : new LongAdder();
+            counter.increment();
+            return counter;
+        });
+    }
+    
+    /**
+     * Downloads recorded for a material that are not yet in the database.
+     */
+    public long getPendingCount(Long materialId) {
+        LongAdder adder = pending.get(materialId);
+        return adder != null ? adder.sum() : 0;
+    }
+    
+    /**
+     * Drop the counter of a deleted material.
+     */
+    public void forget(Long materialId) {
+        pending.remove(materialId);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.downloads.flush-interval-ms:10000}")
+    public void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        pending.forEach((id, adder) -> {
+            long count = adder.sum();
+            if (count > 0) {
+                adder.add(-count);
+                deltas.put(id, count);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+        
+        try {
+            studyMaterialRepository.addDownloadCounts(deltas);
+            deltas.keySet().forEach(id -> pending.computeIfPresent(id, (key, adder) -> adder.sum() == 0 ? null : adder));
+            log.debug("Flushed download counts for {} materials", deltas.size());
+        } catch (Exception e) {
+            deltas.forEach((id, count) -> pending.computeIfAbsent(id, key -> new LongAdder()).add(count));
+            log.error("Failed to flush download counts for {} materials; will retry", deltas.size(), e);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
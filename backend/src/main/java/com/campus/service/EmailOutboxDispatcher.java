@@ -0,0 +1,211 @@
+package com.campus.service;
+
+import com.campus.dto.EmailOutboxStats;
+import com.campus.model.OutboundEmail;
+import com.campus.repository.OutboundEmailRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers queued rows from the email outbox.
+ *
+ * Each run sends one batch through a single {@code JavaMailSender#send}
+ * call, which opens one SMTP connection for the whole batch. A token bucket
+ * caps the sending rate. Failed messages are retried with exponential
+ * backoff and marked FAILED after the configured number of attempts.
+ *
+ * Every node polls the outbox. A run first claims its batch with a single
+ * UPDATE that tags the rows and pushes their next attempt out by the claim
+ * lease, so concurrent runs never pick the same message; rows of a node
+ * that dies mid-batch become due again when the lease runs out. The lease
+ * must be longer than sending one batch takes. The rate cap applies per
+ * node.
+ */
+@Service
+@Slf4j
+public class EmailOutboxDispatcher {
+    
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final JavaMailSender mailSender;
+    private final String fromEmail;
+    private final int batchSize;
+    private final int maxPerMinute;
+    private final int maxAttempts;
+    private final long backoffSeconds;
+    private final long claimSeconds;
+    
+    // Rate limiting and statistics; only touched by the scheduler thread
+    // apart from the reads in getStats()
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private volatile long sentSinceStartup;
+    private volatile long retriesSinceStartup;
+    private volatile long deliveryLatencyTotalMs;
+    private volatile Long lastBatchDurationMs;
+    private volatile LocalDateTime lastRunAt;
+    
+    public EmailOutboxDispatcher(
+            OutboundEmailRepository outboundEmailRepository,
+            JavaMailSender mailSender,
+            @Value("${spring.mail.username:noreply@campusconnect.com}") String fromEmail,
+            @Value("${app.mail.outbox.batch-size:50}") int batchSize,
+            @Value("${app.mail.outbox.max-per-minute:120}") int maxPerMinute,
+            @Value("${app.mail.outbox.max-attempts:5}") int maxAttempts,
+            @Value("${app.mail.outbox.backoff-seconds:30}") long backoffSeconds,
+            @Value("${app.mail.outbox.claim-seconds:300}") long claimSeconds
+    ) {
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.mailSender = mailSender;
+        this.fromEmail = fromEmail;
+        this.batchSize = batchSize;
+        this.maxPerMinute = maxPerMinute;
+        this.maxAttempts = maxAttempts;
+        this.backoffSeconds = backoffSeconds;
+        this.claimSeconds = claimSeconds;
+        this.tokens = Math.min(batchSize, maxPerMinute);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:5000}")
+    public void dispatch() {
+        lastRunAt = LocalDateTime.now();
+        refillTokens();
+        
+        int allowance = (int) Math.min(batchSize, Math.floor(tokens));
+        if (allowance == 0) {
+            return;
+        }
+        
+        String claim = UUID.randomUUID().toString();
+        LocalDateTime claimedAt = LocalDateTime.now();
+        if (outboundEmailRepository.claimDue(claim, claimedAt, claimedAt.plusSeconds(claimSeconds), allowance) == 0) {
+            return;
+        }
+        List<OutboundEmail> due = outboundEmailRepository.findClaimed(claim);
+        if (due.isEmpty()) {
+            return;
+        }
+        tokens -= due.size();
+        
+        long start = System.nanoTime();
+        Map<OutboundEmail, Exception> failures = send(due);
+        LocalDateTime now = LocalDateTime.now();
+        
+        for (OutboundEmail email : due) {
+            Exception failure = failures.get(email);
+            if (failure == null) {
+                email.setStatus(OutboundEmail.Status.SENT);
+                email.setSentAt(now);
+                email.setBody(null);
+                email.setLastError(null);
+                sentSinceStartup++;
+                deliveryLatencyTotalMs += Duration.between(email.getCreatedAt(), now).toMillis();
+            } else {
+                scheduleRetry(email, failure, now);
+            }
+        }
+        
+        outboundEmailRepository.saveAll(due);
+        lastBatchDurationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Email outbox: sent {} of {} in {} ms", due.size() - failures.size(), due.size(), lastBatchDurationMs);
+    }
+    
+    public EmailOutboxStats getStats() {
+        LocalDateTime oldest = outboundEmailRepository.findOldestPendingCreatedAt();
+        long sent = sentSinceStartup;
+        return new EmailOutboxStats(
+                outboundEmailRepository.countByStatus(OutboundEmail.Status.PENDING),
+                outboundEmailRepository.countByStatus(OutboundEmail.Status.FAILED),
+                oldest != null ? Duration.between(oldest, LocalDateTime.now()).toSeconds() : null,
+                sent,
+                retriesSinceStartup,
+                sent > 0 ? deliveryLatencyTotalMs / sent : null,
+                lastBatchDurationMs,
+                lastRunAt
+        );
+    }
+    
+    private Map<OutboundEmail, Exception> send(List<OutboundEmail> batch) {
+        Map<SimpleMailMessage, OutboundEmail> byMessage = new IdentityHashMap<>();
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            OutboundEmail email = batch.get(i);
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(fromEmail);
+            message.setTo(email.getToAddress());
+            message.setSubject(email.getSubject());
+            message.setText(email.getBody());
+            messages[i] = message;
+            byMessage.put(message, email);
+        }
+        
+        try {
+            mailSender.send(messages);
+            return Collections.emptyMap();
+        } catch (MailSendException e) {
+            Map<OutboundEmail, Exception> failures = new IdentityHashMap<>();
+            e.getFailedMessages().forEach((message, cause) -> {
+                OutboundEmail email = byMessage.get(message);
+                if (email != null) {
+                    failures.put(email, cause);
+                }
+            });
+            if (failures.isEmpty()) {
+                batch.forEach(email -> failures.put(email, e));
+            }
+            return failures;
+        } catch (MailException e) {
+            // Connection or authentication failure: nothing was sent
+            Map<OutboundEmail, Exception> failures = new IdentityHashMap<>();
+            batch.forEach(email -> failures.put(email, e));
+            return failures;
+        }
+    }
+    
+    private void scheduleRetry(OutboundEmail email, Exception failure, LocalDateTime now) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setLastError(truncate(failure.getMessage()));
+        
+        if (attempts >= maxAttempts) {
+            email.setStatus(OutboundEmail.Status.FAILED);
+            log.error("Giving up on email {} to {} after {} attempts", email.getId(), email.getToAddress(), attempts, failure);
+            return;
+        }
+        
+        // 30s, 60s, 120s, ... capped at one hour
+        long delay = Math.min(backoffSeconds << Math.min(attempts - 1, 16), 3600);
+        email.setNextAttemptAt(now.plusSeconds(delay));
+        retriesSinceStartup++;
+        log.warn("Email {} to {} failed (attempt {}), retrying in {}s: {}",
+                email.getId(), email.getToAddress(), attempts, delay, failure.getMessage());
+    }
+    
+    private void refillTokens() {
+        long now = System.nanoTime();
+        double minutes = (now - lastRefill) / 60_000_000_000.0;
+        tokens = Math.min(Math.max(1, Math.min(batchSize, maxPerMinute)), tokens + minutes * maxPerMinute);
+        lastRefill = now;
+    }
+    
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
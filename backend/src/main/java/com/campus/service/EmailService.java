@@ -1,10 +1,10 @@
 package com.campus.service;
 
+import com.campus.model.OutboundEmail;
+import com.campus.repository.OutboundEmailRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -12,58 +12,28 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class EmailService {
     
-    private final JavaMailSender mailSender;
-    
-    @Value("${spring.mail.username:noreply@campusconnect.com}")
-    private String fromEmail;
+    private final OutboundEmailRepository outboundEmailRepository;
     
     @Value("${app.frontend.url:http://localhost:5173}")
     private String frontendUrl;
     
     public void sendInvitationEmail(String toEmail, String name, String tempPassword) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("Welcome to Campus Connect!");
-            message.setText(buildInvitationEmailBody(name, toEmail, tempPassword));
-            
-            mailSender.send(message);
-            log.info("Invitation email sent to: {}", toEmail);
-        } catch (Exception e) {
-            log.error("Failed to send invitation email to: {}", toEmail, e);
-            // Don't throw exception - user creation should succeed even if email fails
-        }
+        enqueue(toEmail, "Welcome to Campus Connect!", buildInvitationEmailBody(name, toEmail, tempPassword));
     }
     
     public void sendPasswordResetApprovalEmail(String toEmail, String name, String tempPassword) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("Password Reset Approved - Campus Connect");
-            message.setText(buildPasswordResetApprovalBody(name, tempPassword));
-            
-            mailSender.send(message);
-            log.info("Password reset approval email sent to: {}", toEmail);
-        } catch (Exception e) {
-            log.error("Failed to send password reset approval email to: {}", toEmail, e);
-        }
+        enqueue(toEmail, "Password Reset Approved - Campus Connect", buildPasswordResetApprovalBody(name, tempPassword));
     }
     
     public void sendPasswordResetRejectionEmail(String toEmail, String name, String reason) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("Password Reset Request Rejected - Campus Connect");
-            message.setText(buildPasswordResetRejectionBody(name, reason));
-            
-            mailSender.send(message);
-            log.info("Password reset rejection email sent to: {}", toEmail);
-        } catch (Exception e) {
-            log.error("Failed to send password reset rejection email to: {}", toEmail, e);
-        }
+        enqueue(toEmail, "Password Reset Request Rejected - Campus Connect", buildPasswordResetRejectionBody(name, reason));
+    }
+    
+    // Written in the caller's transaction, so a rolled-back change never sends mail.
+    // EmailOutboxDispatcher delivers the message in the background.
+    private void enqueue(String toEmail, String subject, String body) {
+        outboundEmailRepository.save(new OutboundEmail(toEmail, subject, body));
+        log.info("Queued email '{}' to: {}", subject, toEmail);
     }
     
     private String buildInvitationEmailBody(String name, String email, String tempPassword) {
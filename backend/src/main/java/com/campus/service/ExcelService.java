@@ -3,141 +3,313 @@ package com.campus.service;
 import com.campus.dto.BulkUploadResponse;
 import com.campus.dto.CreateUserRequest;
 import com.campus.dto.ExcelError;
+import com.campus.model.Department;
 import com.campus.model.User;
 import com.campus.repository.DepartmentRepository;
-import lombok.RequiredArgsConstructor;
+import com.campus.repository.UserRepository;
+import com.campus.util.PasswordGenerator;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
+/**
+ * Bulk user import from .xlsx files.
+ *
+ * The sheet is read with the XSSF event model, so memory use does not grow
+ * with the workbook size. Department codes are resolved from one lookup,
+ * existing accounts are found with a single email query, passwords are
+ * hashed on a bounded pool and users are inserted in JDBC batches.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ExcelService {
     
     private final DepartmentRepository departmentRepository;
+    private final UserRepository userRepository;
     private final UserService userService;
+    private final PasswordEncoder passwordEncoder;
+    private final EmailService emailService;
+    private final ExecutorService hashPool;
+    private final int batchSize;
     
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
     
-    public BulkUploadResponse processStudentExcel(MultipartFile file) {
+    public ExcelService(
+            DepartmentRepository departmentRepository,
+            UserRepository userRepository,
+            UserService userService,
+            PasswordEncoder passwordEncoder,
+            EmailService emailService,
+            @Value("${app.import.hash-threads:0}") int hashThreads,
+            @Value("${app.import.batch-size:500}") int batchSize
+    ) {
+        this.departmentRepository = departmentRepository;
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.passwordEncoder = passwordEncoder;
+        this.emailService = emailService;
+        this.batchSize = batchSize;
+        
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.hashPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "import-hash-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Import students or faculty from the first sheet of an .xlsx file,
+     * reporting progress on the given job.
+     */
+    public BulkUploadResponse importUsers(File file, User.Role role, UserImportJob job) {
         BulkUploadResponse response = new BulkUploadResponse();
-        List<CreateUserRequest> validUsers = new ArrayList<>();
         
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            int rowNum = 0;
+        List<ParsedRow> rows;
+        try {
+            job.parsing();
+            rows = readRows(file, role, response, job);
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException e) {
+            log.error("Error processing Excel file", e);
+            response.getErrors().add(new ExcelError(0, "File", "Error reading Excel file: " + e.getMessage()));
+            return response;
+        }
+        
+        job.importing(response.getTotalRows());
+        job.rowsProcessed(response.getErrorCount());
+        
+        List<ParsedRow> newRows = rejectDuplicates(rows, response);
+        job.rowsProcessed(rows.size() - newRows.size());
+        
+        for (int from = 0; from < newRows.size(); from += batchSize) {
+            List<ParsedRow> chunk = newRows.subList(from, Math.min(from + batchSize, newRows.size()));
+            createUsers(chunk, response);
+            job.rowsProcessed(chunk.size());
+        }
+        
+        return response;
+    }
+    
+    private List<ParsedRow> readRows(File file, User.Role role, BulkUploadResponse response, UserImportJob job)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        Map<String, Department> departments = departmentRepository.findAll().stream()
+                .collect(Collectors.toMap(d -> d.getCode().trim().toUpperCase(), d -> d, (a, b) -> a));
+        List<ParsedRow> rows = new ArrayList<>();
+        
+        XSSFSheetXMLHandler.SheetContentsHandler handler = new XSSFSheetXMLHandler.SheetContentsHandler() {
+            private final List<String> cells = new ArrayList<>();
             
-            for (Row row : sheet) {
-                rowNum++;
-                
-                // Skip header row
-                if (rowNum == 1) continue;
-                
-                // Skip empty rows
-                if (isRowEmpty(row)) continue;
+            @Override
+            public void startRow(int rowIndex) {
+                cells.clear();
+            }
+            
+            @Override
+            public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                int column = new CellReference(cellReference).getCol();
+                while (cells.size() <= column) {
+                    cells.add(null);
+                }
+                cells.set(column, formattedValue);
+            }
+            
+            @Override
+            public void endRow(int rowIndex) {
+                // Skip header row and empty rows
+                if (rowIndex == 0 || isRowEmpty(cells)) return;
                 
+                int rowNum = rowIndex + 1;
                 response.setTotalRows(response.getTotalRows() + 1);
                 
                 try {
-                    CreateUserRequest user = parseStudentRow(row, rowNum);
-                    if (user != null) {
-                        validUsers.add(user);
-                    }
+                    rows.add(role == User.Role.STUDENT
+                            ? parseStudentRow(cells, departments, rowNum)
+                            : parseFacultyRow(cells, departments, rowNum));
                 } catch (Exception e) {
                     response.getErrors().add(new ExcelError(rowNum, "Row", e.getMessage()));
                     response.setErrorCount(response.getErrorCount() + 1);
                 }
+                
+                if (response.getTotalRows() % 1000 == 0) {
+                    job.rowsParsed(response.getTotalRows());
+                }
             }
+        };
+        
+        // Read-only packages are released with revert(); close() would try to save
+        OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
             
-            // Create valid users
-            for (CreateUserRequest userRequest : validUsers) {
-                try {
-                    response.getCreatedUsers().add(userService.createUser(userRequest));
-                    response.setSuccessCount(response.getSuccessCount() + 1);
-                } catch (Exception e) {
-                    response.getErrors().add(new ExcelError(0, userRequest.getEmail(), e.getMessage()));
-                    response.setErrorCount(response.getErrorCount() + 1);
-                }
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return rows;
             }
             
-        } catch (IOException e) {
-            log.error("Error processing Excel file", e);
-            response.getErrors().add(new ExcelError(0, "File", "Error reading Excel file: " + e.getMessage()));
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, handler, new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } finally {
+            pkg.revert();
         }
         
-        return response;
+        return rows;
     }
     
-    public BulkUploadResponse processFacultyExcel(MultipartFile file) {
-        BulkUploadResponse response = new BulkUploadResponse();
-        List<CreateUserRequest> validUsers = new ArrayList<>();
+    private List<ParsedRow> rejectDuplicates(List<ParsedRow> rows, BulkUploadResponse response) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
         
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            int rowNum = 0;
-            
-            for (Row row : sheet) {
-                rowNum++;
-                
-                // Skip header row
-                if (rowNum == 1) continue;
-                
-                // Skip empty rows
-                if (isRowEmpty(row)) continue;
-                
-                response.setTotalRows(response.getTotalRows() + 1);
-                
-                try {
-                    CreateUserRequest user = parseFacultyRow(row, rowNum);
-                    if (user != null) {
-                        validUsers.add(user);
-                    }
-                } catch (Exception e) {
-                    response.getErrors().add(new ExcelError(rowNum, "Row", e.getMessage()));
-                    response.setErrorCount(response.getErrorCount() + 1);
-                }
+        Set<String> existing = userRepository.findExistingEmails(
+                        rows.stream().map(r -> r.request().getEmail()).collect(Collectors.toSet()))
+                .stream()
+                .map(String::toLowerCase)
+                .collect(Collectors.toSet());
+        
+        Set<String> seen = new HashSet<>();
+        List<ParsedRow> newRows = new ArrayList<>();
+        for (ParsedRow row : rows) {
+            String email = row.request().getEmail();
+            if (existing.contains(email)) {
+                addError(response, row, "Email already exists: " + email);
+            } else if (!seen.add(email)) {
+                addError(response, row, "Duplicate email in file: " + email);
+            } else {
+                newRows.add(row);
             }
+        }
+        return newRows;
+    }
+    
+    private void createUsers(List<ParsedRow> chunk, BulkUploadResponse response) {
+        List<String> tempPasswords = new ArrayList<>(chunk.size());
+        List<Future<String>> hashes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String tempPassword = PasswordGenerator.generatePassword();
+            tempPasswords.add(tempPassword);
+            hashes.add(hashPool.submit(() -> passwordEncoder.encode(tempPassword)));
+        }
+        
+        List<User> users = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ParsedRow row = chunk.get(i);
+            CreateUserRequest request = row.request();
             
-            // Create valid users
-            for (CreateUserRequest userRequest : validUsers) {
+            User user = new User();
+            user.setName(request.getName());
+            user.setEmail(request.getEmail());
+            user.setRole(request.getRole());
+            user.setDepartment(row.department());
+            user.setRollNumber(request.getRollNumber());
+            user.setJoiningYear(request.getJoiningYear());
+            user.setDesignation(request.getDesignation());
+            user.setIsFirstLogin(true);
+            user.setIsActive(true);
+            user.setPassword(await(hashes.get(i)));
+            users.add(user);
+        }
+        
+        try {
+            userRepository.batchInsert(users);
+        } catch (DataAccessException e) {
+            // The batch is rolled back as a whole; insert its rows one by one so
+            // only the rows that actually fail (e.g. an email registered
+            // meanwhile) are reported
+            log.warn("Batch of {} imported users failed, retrying row by row: {}",
+                    users.size(), e.getMostSpecificCause().getMessage());
+            for (int i = 0; i < users.size(); i++) {
                 try {
-                    response.getCreatedUsers().add(userService.createUser(userRequest));
-                    response.setSuccessCount(response.getSuccessCount() + 1);
-                } catch (Exception e) {
-                    response.getErrors().add(new ExcelError(0, userRequest.getEmail(), e.getMessage()));
-                    response.setErrorCount(response.getErrorCount() + 1);
+                    userRepository.batchInsert(List.of(users.get(i)));
+                } catch (DataAccessException rowError) {
+                    addError(response, chunk.get(i), rowError.getMostSpecificCause().getMessage());
+                    continue;
                 }
+                created(users.get(i), tempPasswords.get(i), response);
             }
-            
-        } catch (IOException e) {
-            log.error("Error processing Excel file", e);
-            response.getErrors().add(new ExcelError(0, "File", "Error reading Excel file: " + e.getMessage()));
+            return;
         }
         
-        return response;
+        for (int i = 0; i < users.size(); i++) {
+            created(users.get(i), tempPasswords.get(i), response);
+        }
+    }
+    
+    private void created(User user, String tempPassword, BulkUploadResponse response) {
+        response.getCreatedUsers().add(userService.convertToDTO(user));
+        response.setSuccessCount(response.getSuccessCount() + 1);
+        emailService.sendInvitationEmail(user.getEmail(), user.getName(), tempPassword);
+    }
+    
+    private String await(Future<String> hash) {
+        try {
+            return hash.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Password hashing failed", e.getCause());
+        }
     }
     
-    private CreateUserRequest parseStudentRow(Row row, int rowNum) {
+    private void addError(BulkUploadResponse response, ParsedRow row, String message) {
+        response.getErrors().add(new ExcelError(row.rowNum(), row.request().getEmail(), message));
+        response.setErrorCount(response.getErrorCount() + 1);
+    }
+    
+    private ParsedRow parseStudentRow(List<String> cells, Map<String, Department> departments, int rowNum) {
         // Expected columns: Name, Email, Roll Number, Department Code, Joining Year
-        String name = getCellValue(row.getCell(0));
-        String email = getCellValue(row.getCell(1));
-        String rollNumber = getCellValue(row.getCell(2));
-        String departmentCode = getCellValue(row.getCell(3));
-        String joiningYearStr = getCellValue(row.getCell(4));
+        String name = getCellValue(cells, 0);
+        String email = getCellValue(cells, 1);
+        String rollNumber = getCellValue(cells, 2);
+        String departmentCode = getCellValue(cells, 3);
+        String joiningYearStr = getCellValue(cells, 4);
         
         // Validate required fields
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Name is required");
         }
-        if (email == null || !EMAIL_PATTERN.matcher(email).matches()) {
+        if (email == null || !EMAIL_PATTERN.matcher(email.trim()).matches()) {
             throw new IllegalArgumentException("Invalid email format");
         }
         if (rollNumber == null || rollNumber.trim().isEmpty()) {
@@ -148,14 +320,12 @@ public class ExcelService {
         }
         
         // Find department
-        Long departmentId = departmentRepository.findByCode(departmentCode)
-                .map(d -> d.getId())
-                .orElseThrow(() -> new IllegalArgumentException("Department not found: " + departmentCode));
+        Department department = findDepartment(departments, departmentCode);
         
         Integer joiningYear = null;
         if (joiningYearStr != null && !joiningYearStr.trim().isEmpty()) {
             try {
-                joiningYear = Integer.parseInt(joiningYearStr);
+                joiningYear = Integer.parseInt(joiningYearStr.trim());
             } catch (NumberFormatException e) {
                 throw new IllegalArgumentException("Invalid joining year format");
             }
@@ -165,25 +335,25 @@ public class ExcelService {
         user.setName(name.trim());
         user.setEmail(email.trim().toLowerCase());
         user.setRole(User.Role.STUDENT);
-        user.setDepartmentId(departmentId);
+        user.setDepartmentId(department.getId());
         user.setRollNumber(rollNumber.trim());
         user.setJoiningYear(joiningYear);
         
-        return user;
+        return new ParsedRow(rowNum, user, department);
     }
     
-    private CreateUserRequest parseFacultyRow(Row row, int rowNum) {
+    private ParsedRow parseFacultyRow(List<String> cells, Map<String, Department> departments, int rowNum) {
         // Expected columns: Name, Email, Department Code, Designation
-        String name = getCellValue(row.getCell(0));
-        String email = getCellValue(row.getCell(1));
-        String departmentCode = getCellValue(row.getCell(2));
-        String designation = getCellValue(row.getCell(3));
+        String name = getCellValue(cells, 0);
+        String email = getCellValue(cells, 1);
+        String departmentCode = getCellValue(cells, 2);
+        String designation = getCellValue(cells, 3);
         
         // Validate required fields
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Name is required");
         }
-        if (email == null || !EMAIL_PATTERN.matcher(email).matches()) {
+        if (email == null || !EMAIL_PATTERN.matcher(email.trim()).matches()) {
             throw new IllegalArgumentException("Invalid email format");
         }
         if (departmentCode == null || departmentCode.trim().isEmpty()) {
@@ -191,40 +361,44 @@ public class ExcelService {
         }
         
         // Find department
-        Long departmentId = departmentRepository.findByCode(departmentCode)
-                .map(d -> d.getId())
-                .orElseThrow(() -> new IllegalArgumentException("Department not found: " + departmentCode));
+        Department department = findDepartment(departments, departmentCode);
         
         CreateUserRequest user = new CreateUserRequest();
         user.setName(name.trim());
         user.setEmail(email.trim().toLowerCase());
         user.setRole(User.Role.FACULTY);
-        user.setDepartmentId(departmentId);
+        user.setDepartmentId(department.getId());
         user.setDesignation(designation != null ? designation.trim() : null);
         
-        return user;
+        return new ParsedRow(rowNum, user, department);
     }
     
-    private String getCellValue(Cell cell) {
-        if (cell == null) return null;
-        
-        return switch (cell.getCellType()) {
-            case STRING -> cell.getStringCellValue();
-            case NUMERIC -> String.valueOf((long) cell.getNumericCellValue());
-            case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
-            default -> null;
-        };
+    private Department findDepartment(Map<String, Department> departments, String departmentCode) {
+        Department department = departments.get(departmentCode.trim().toUpperCase());
+        if (department == null) {
+            throw new IllegalArgumentException("Department not found: " + departmentCode);
+        }
+        return department;
     }
     
-    private boolean isRowEmpty(Row row) {
-        if (row == null) return true;
-        
-        for (int i = 0; i < row.getLastCellNum(); i++) {
-            Cell cell = row.getCell(i);
-            if (cell != null && cell.getCellType() != CellType.BLANK) {
+    private String getCellValue(List<String> cells, int column) {
+        return column < cells.size() ? cells.get(column) : null;
+    }
+    
+    private boolean isRowEmpty(List<String> cells) {
+        for (String cell : cells) {
+            if (cell != null && !cell.isBlank()) {
                 return false;
             }
         }
         return true;
     }
+    
+    @PreDestroy
+    public void shutdown() {
+        hashPool.shutdownNow();
+    }
+    
+    private record ParsedRow(int rowNum, CreateUserRequest request, Department department) {
+    }
 }
@@ -0,0 +1,241 @@
+package com.campus.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * Writes stored files to HTTP responses.
+ *
+ * Files in a remote blob store are answered with a redirect to a presigned
+ * URL. Local files support conditional GET (strong ETag and Last-Modified,
+ * answered with 304), single byte ranges with If-Range, and HEAD. The body
+ * is handed to Tomcat's sendfile when the connector offers it, otherwise it
+ * is copied with {@link FileChannel#transferTo}; either way it never passes
+ * through a heap buffer in application code.
+ */
+@Service
+@RequiredArgsConstructor
+public class FileDownloadService {
+    
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    
+    /** For files that may be replaced under the same URL; clients revalidate each use. */
+    public static final String REVALIDATE = "private, no-cache";
+    
+    /** For URLs whose content never changes, such as content-addressed files. */
+    public static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    
+    private final FileStorageService fileStorageService;
+    
+    /**
+     * Serve a stored file.
+     *
+     * @param relativePath path as stored on the owning entity, e.g. {@code study-materials/<uuid>.pdf}
+     * @param downloadName file name offered to the client
+     * @param contentType  content type recorded at upload time, or null to detect it
+     * @param inline       whether browsers should display rather than save the file
+     * @param cacheControl {@link #REVALIDATE} or {@link #IMMUTABLE}
+     * @return true if the response delivers the file from its first byte
+     *         (a full 200 or a range starting at 0), i.e. a new download
+     */
+    public boolean serve(String relativePath, String downloadName, String contentType, boolean inline,
+                         String cacheControl, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Optional<URI> presigned = fileStorageService.presignedDownloadUrl(
+                relativePath, downloadName, resolveContentType(contentType, downloadName), inline);
+        if (presigned.isPresent()) {
+            // The object store serves the bytes, including ranges and validators
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+            response.sendRedirect(presigned.get().toString());
+            return request.getHeader(HttpHeaders.RANGE) == null;
+        }
+        
+        Path file = fileStorageService.resolveExistingFile(relativePath);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        
+        // Deduplicated uploads are named by their SHA-256. Older uploads are written
+        // once under a unique name and never modified, so size and modification
+        // time identify their bytes exactly
+        String contentTag = fileStorageService.getContentTag(relativePath);
+        String etag = contentTag != null
+                ? "\"" + contentTag + "\""
+                : "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+        
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        
+        response.setContentType(resolveContentType(contentType, downloadName));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                (inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                        .filename(downloadName, StandardCharsets.UTF_8)
+                        .build()
+                        .toString());
+        
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && length > 0 && ifRangeMatches(request, etag, lastModified)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return false;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count == 0) {
+            return false;
+        }
+        
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file with sendfile after the handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long position = start;
+                long remaining = count;
+                while (remaining > 0) {
+                    long written = channel.transferTo(position, remaining, out);
+                    if (written <= 0) {
+                        break;
+                    }
+                    position += written;
+                    remaining -= written;
+                }
+            }
+        }
+        
+        return start == 0;
+    }
+    
+    private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+    
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && lastModified / 1000 == date / 1000;
+    }
+    
+    /**
+     * @return {start, end} for a satisfiable single range, an empty array to
+     *         ignore the header (malformed or multiple ranges), or null if the
+     *         range cannot be satisfied
+     */
+    private long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.contains(",")) {
+            return new long[0];
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+    
+    private long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+    
+    private String resolveContentType(String recorded, String fileName) {
+        if (recorded != null && !recorded.isBlank()) {
+            return recorded;
+        }
+        return MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+}
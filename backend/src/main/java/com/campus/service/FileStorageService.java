@@ -1,32 +1,86 @@
 package com.campus.service;
 
 import com.campus.exception.CustomExceptions;
+import com.campus.repository.StoredBlobRepository;
+import com.campus.storage.BlobStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Stores uploads deduplicated by content in a {@link BlobStore}.
+ *
+ * Each upload is hashed with SHA-256 while it is spooled to a temporary
+ * file, then kept once under the key {@code <xx>/<hash>}. The returned
+ * reference, {@code <subFolder>/<hash><ext>}, keeps the extension for
+ * content-type detection. A row in stored_blobs counts the references;
+ * {@link #deleteFile} releases one after the caller's transaction commits
+ * (so a rolled-back delete keeps the file), and a store that rolls back
+ * gives its reference back. The object is written before its reference
+ * is taken, and checked again afterwards in case a concurrent release
+ * removed it; a release deletes the object while holding the blob's row
+ * lock. This keeps reference changes correct across several application
+ * nodes sharing one bucket without holding a lock during uploads. References written before
+ * deduplication ({@code <subFolder>/<uuid><ext>}) are plain local files.
+ *
+ * Derived files such as thumbnails are stored next to their original as
+ * {@code <name>_<variant><ext>}. They are not reference counted; they go
+ * when the original does.
+ */
 @Service
 @Slf4j
 public class FileStorageService {
     
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("([0-9a-f]{64})(_[0-9a-z]+)?(\\.[^/]*)?");
+    
     private final Path fileStorageLocation;
+    private final Path tempLocation;
+    private final BlobStore blobStore;
+    private final StoredBlobRepository storedBlobRepository;
+    private final TransactionTemplate blobTransaction;
+    private final Map<String, String> variants = new ConcurrentHashMap<>();
     
-    public FileStorageService(@Value("${file.upload-dir:d:/Demo/uploads}") String uploadDir) {
+    public FileStorageService(
+            @Value("${file.upload-dir:d:/Demo/uploads}") String uploadDir,
+            BlobStore blobStore,
+            StoredBlobRepository storedBlobRepository,
+            PlatformTransactionManager transactionManager
+    ) {
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.tempLocation = this.fileStorageLocation.resolve("blobs").resolve("tmp");
+        this.blobStore = blobStore;
+        this.storedBlobRepository = storedBlobRepository;
+        this.blobTransaction = new TransactionTemplate(transactionManager);
+        this.blobTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
         
         try {
             Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.tempLocation);
         } catch (Exception ex) {
             throw new RuntimeException("Could not create the directory where the uploaded files will be stored.", ex);
         }
@@ -36,54 +90,245 @@ public class FileStorageService {
         // Normalize file name
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
         
+        // Check if the file's name contains invalid characters
+        if (originalFileName.contains("..")) {
+            throw new RuntimeException("Sorry! Filename contains invalid path sequence " + originalFileName);
+        }
+        
+        String fileExtension = "";
+        if (originalFileName.contains(".")) {
+            fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
+        }
+        
+        Path tempFile = tempLocation.resolve(UUID.randomUUID() + ".part");
         try {
-            // Check if the file's name contains invalid characters
-            if (originalFileName.contains("..")) {
-                throw new RuntimeException("Sorry! Filename contains invalid path sequence " + originalFileName);
+            // Hash while copying so the upload is read only once
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(in, tempFile);
             }
+            String hash = HexFormat.of().formatHex(digest.digest());
             
-            // Generate unique filename
-            String fileExtension = "";
-            if (originalFileName.contains(".")) {
-                fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
+            // Write the object before taking a reference so no connection or
+            // row lock is held during the upload; content-addressed puts are
+            // idempotent, so racing uploads of the same content are harmless
+            if (!blobStore.exists(blobKey(hash))) {
+                blobStore.put(blobKey(hash), tempFile, size);
             }
-            String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
-            
-            // Create subfolder if it doesn't exist
-            Path targetLocation = this.fileStorageLocation.resolve(subFolder);
-            Files.createDirectories(targetLocation);
-            
-            // Copy file to the target location
-            Path filePath = targetLocation.resolve(uniqueFileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            blobTransaction.executeWithoutResult(status -> storedBlobRepository.acquire(hash, size));
+            // The reference is committed from here on and must be given back if
+            // this upload does not complete
+            try {
+                // A release that dropped the last reference between the put and the
+                // acquire has deleted the object; it finished before the acquire got
+                // the row lock, and our reference now prevents another one
+                if (!blobStore.exists(blobKey(hash))) {
+                    blobStore.put(blobKey(hash), tempFile, size);
+                }
+            } catch (IOException | RuntimeException ex) {
+                release(hash);
+                throw ex;
+            }
+            releaseOnRollback(hash);
             
-            return subFolder + "/" + uniqueFileName;
-        } catch (IOException ex) {
+            return subFolder + "/" + hash + fileExtension;
+        } catch (IOException | NoSuchAlgorithmException ex) {
             throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ex) {
+                log.warn("Could not remove temporary upload {}", tempFile, ex);
+            }
+        }
+    }
+    
+    /**
+     * Resolve a stored path such as {@code study-materials/<hash>.pdf} to a
+     * readable local file. Fails for blobs kept in a remote store; use
+     * {@link #presignedDownloadUrl} for those.
+     */
+    public Path resolveExistingFile(String relativePath) {
+        String key = blobKeyFor(relativePath);
+        Path path = key != null
+                ? blobStore.localPath(key).orElseThrow(
+                        () -> new CustomExceptions.UserNotFoundException("File not found " + relativePath))
+                : this.fileStorageLocation.resolve(relativePath).normalize();
+        if (!path.startsWith(this.fileStorageLocation) || !Files.isRegularFile(path)) {
+            throw new CustomExceptions.UserNotFoundException("File not found " + relativePath);
+        }
+        return path;
+    }
+    
+    /**
+     * SHA-256 of a content-addressed reference, or null for older references.
+     */
+    public String getContentHash(String relativePath) {
+        Matcher matcher = contentAddressed(relativePath);
+        return matcher != null ? matcher.group(1) : null;
+    }
+    
+    /**
+     * Identifies the exact bytes of a content-addressed reference or one of
+     * its variants ({@code <hash>} or {@code <hash>_<variant>}), or null for
+     * older references.
+     */
+    public String getContentTag(String relativePath) {
+        Matcher matcher = contentAddressed(relativePath);
+        if (matcher == null) {
+            return null;
+        }
+        return matcher.group(2) != null ? matcher.group(1) + matcher.group(2) : matcher.group(1);
+    }
+    
+    /**
+     * A direct download URL for the file, when its store can hand one out.
+     */
+    public Optional<URI> presignedDownloadUrl(String relativePath, String downloadName, String contentType, boolean inline) {
+        String key = blobKeyFor(relativePath);
+        if (key == null) {
+            return Optional.empty();
         }
+        return blobStore.presignedDownloadUrl(key, downloadName, contentType, inline);
     }
     
-    public Resource loadFileAsResource(String fileName, String subFolder) {
+    public boolean exists(String relativePath) {
+        String key = blobKeyFor(relativePath);
+        if (key == null) {
+            Path path = this.fileStorageLocation.resolve(relativePath).normalize();
+            return path.startsWith(this.fileStorageLocation) && Files.isRegularFile(path);
+        }
         try {
-            Path filePath = this.fileStorageLocation.resolve(subFolder).resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists()) {
-                return resource;
-            } else {
-                throw new CustomExceptions.UserNotFoundException("File not found " + fileName);
-            }
-        } catch (Exception ex) {
-            throw new CustomExceptions.UserNotFoundException("File not found " + fileName);
+            return blobStore.exists(key);
+        } catch (IOException ex) {
+            log.warn("Could not check stored file {}", relativePath, ex);
+            return false;
+        }
+    }
+    
+    public InputStream openStream(String relativePath) throws IOException {
+        String key = blobKeyFor(relativePath);
+        return key != null ? blobStore.open(key) : Files.newInputStream(resolveExistingFile(relativePath));
+    }
+    
+    /**
+     * Declare a variant and its file extension so that variants are removed
+     * with their original.
+     */
+    public void registerVariant(String variant, String extension) {
+        variants.put(variant, extension);
+    }
+    
+    /**
+     * Reference of a derived file stored next to {@code relativePath}.
+     */
+    public String variantReference(String relativePath, String variant, String extension) {
+        int dot = relativePath.lastIndexOf('.');
+        String base = dot > relativePath.lastIndexOf('/') ? relativePath.substring(0, dot) : relativePath;
+        return base + "_" + variant + extension;
+    }
+    
+    /**
+     * Store a derived file under a reference from {@link #variantReference}.
+     * The source file may be moved away.
+     */
+    public void storeVariant(String variantReference, Path source) throws IOException {
+        String key = blobKeyFor(variantReference);
+        if (key != null) {
+            blobStore.put(key, source, Files.size(source));
+            return;
         }
+        Path target = this.fileStorageLocation.resolve(variantReference).normalize();
+        if (!target.startsWith(this.fileStorageLocation)) {
+            throw new IOException("Invalid variant path " + variantReference);
+        }
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * A temporary file inside the upload directory, for building variants.
+     */
+    public Path createTempFile() throws IOException {
+        return Files.createTempFile(tempLocation, "variant-", ".part");
     }
     
     public void deleteFile(String filePath) {
+        String hash = getContentHash(filePath);
+        if (hash == null) {
+            try {
+                Path path = this.fileStorageLocation.resolve(filePath).normalize();
+                Files.deleteIfExists(path);
+                for (Map.Entry<String, String> variant : variants.entrySet()) {
+                    Files.deleteIfExists(this.fileStorageLocation.resolve(
+                            variantReference(filePath, variant.getKey(), variant.getValue())).normalize());
+                }
+            } catch (IOException ex) {
+                log.error("Could not delete file " + filePath, ex);
+            }
+            return;
+        }
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release(hash);
+                }
+            });
+        } else {
+            release(hash);
+        }
+    }
+    
+    private void releaseOnRollback(String hash) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        release(hash);
+                    }
+                }
+            });
+        }
+    }
+    
+    private void release(String hash) {
         try {
-            Path path = this.fileStorageLocation.resolve(filePath).normalize();
-            Files.deleteIfExists(path);
-        } catch (IOException ex) {
-            log.error("Could not delete file " + filePath, ex);
+            blobTransaction.executeWithoutResult(status -> {
+                if (storedBlobRepository.release(hash) > 0 && storedBlobRepository.deleteIfUnreferenced(hash) > 0) {
+                    try {
+                        blobStore.delete(blobKey(hash));
+                        for (String variant : variants.keySet()) {
+                            blobStore.delete(blobKey(hash) + "_" + variant);
+                        }
+                    } catch (IOException ex) {
+                        // The row is gone either way; an orphaned object is overwritten if the content returns
+                        log.error("Could not delete stored file " + hash, ex);
+                    }
+                }
+            });
+        } catch (Exception ex) {
+            log.error("Could not release stored file " + hash, ex);
         }
     }
+    
+    private String blobKey(String hash) {
+        return hash.substring(0, 2) + "/" + hash;
+    }
+    
+    private String blobKeyFor(String relativePath) {
+        Matcher matcher = contentAddressed(relativePath);
+        if (matcher == null) {
+            return null;
+        }
+        return matcher.group(2) != null ? blobKey(matcher.group(1)) + matcher.group(2) : blobKey(matcher.group(1));
+    }
+    
+    private Matcher contentAddressed(String relativePath) {
+        String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        Matcher matcher = CONTENT_ADDRESSED.matcher(name);
+        return matcher.matches() ? matcher : null;
+    }
 }
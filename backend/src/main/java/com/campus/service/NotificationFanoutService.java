@@ -0,0 +1,144 @@
+package com.campus.service;
+
+import com.campus.model.Notification;
+import com.campus.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes per-user notifications for many recipients off the request thread.
+ * Department-wide broadcasts do not come through here; they are stored once
+ * (see NotificationService#broadcastToDepartment).
+ *
+ * Work is handed over only after the caller's transaction commits, so the
+ * referenced row is visible before any notification points at it and the
+ * request never holds a transaction open for the fan-out. Rows are
+ * written in JDBC batches, each fan-out in a transaction of its own. The
+ * worker queue is bounded; when it is full the submitting thread runs the
+ * fan-out itself, which slows producers down instead of dropping
+ * notifications. That happens in afterCommit, where the finished
+ * transaction is still bound to the thread, so the fan-out must start a
+ * new transaction rather than join it or its writes would never commit.
+ */
+@Service
+@Slf4j
+public class NotificationFanoutService {
+    
+    private final NotificationRepository notificationRepository;
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate fanoutTransaction;
+    private final int batchSize;
+    
+    public NotificationFanoutService(
+            NotificationRepository notificationRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.notifications.fanout.threads:2}") int threads,
+            @Value("${app.notifications.fanout.queue-capacity:100}") int queueCapacity,
+            @Value("${app.notifications.fanout.batch-size:500}") int batchSize
+    ) {
+        this.notificationRepository = notificationRepository;
+        this.batchSize = batchSize;
+        this.fanoutTransaction = new TransactionTemplate(transactionManager);
+        this.fanoutTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "notification-fanout-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+    
+    /**
+     * Notify an explicit set of users with the same title and message.
+     */
+    public void toUsers(Collection<Long> userIds, String title, String message,
+                        Notification.NotificationType type, Long referenceId) {
+        List<Long> recipients = new ArrayList<>(userIds);
+        submitAfterCommit(() -> write(recipients, title, message, type, referenceId));
+    }
+    
+    /**
+     * Persist already-built, per-recipient notifications.
+     */
+    public void publish(List<Notification> notifications) {
+        List<Notification> pending = new ArrayList<>(notifications);
+        submitAfterCommit(() -> insert(pending));
+    }
+    
+    private void write(List<Long> userIds, String title, String message,
+                       Notification.NotificationType type, Long referenceId) {
+        List<Notification> notifications = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            Notification notification = new Notification();
+            notification.setUserId(userId);
+            notification.setTitle(title);
+            notification.setMessage(message);
+            notification.setType(type);
+            notification.setReferenceId(referenceId);
+            notification.setIsRead(false);
+            notifications.add(notification);
+        }
+        insert(notifications);
+    }
+    
+    private void insert(List<Notification> notifications) {
+        long start = System.nanoTime();
+        fanoutTransaction.executeWithoutResult(status -> notificationRepository.batchInsert(notifications, batchSize));
+        log.info("Fanned out {} notifications in {} ms", notifications.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    private void submitAfterCommit(Runnable task) {
+        Runnable guarded = () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Notification fan-out failed", e);
+            }
+        };
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    executor.execute(guarded);
+                }
+            });
+        } else {
+            executor.execute(guarded);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Notification fan-out did not drain before shutdown; {} tasks dropped",
+                    executor.shutdownNow().size());
+        }
+    }
+}
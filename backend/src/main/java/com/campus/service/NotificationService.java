@@ -1,22 +1,29 @@
 package com.campus.service;
 
 import com.campus.dto.NotificationDTO;
-import com.campus.dto.PageResponse;
 import com.campus.model.Announcement;
+import com.campus.model.BroadcastNotification;
 import com.campus.model.Notification;
+import com.campus.model.NotificationWatermark;
 import com.campus.model.User;
+import com.campus.repository.BroadcastNotificationRepository;
+import com.campus.repository.BroadcastReadRepository;
 import com.campus.repository.NotificationRepository;
-import com.campus.repository.UserRepository;
+import com.campus.repository.NotificationWatermarkRepository;
+import com.campus.security.UserPrincipal;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,65 +31,128 @@ import java.util.stream.Collectors;
 @Slf4j
 public class NotificationService {
     
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    /** Order of the notification list; matches the queries behind getUserNotifications. */
+    private static final Comparator<NotificationDTO> NEWEST_FIRST = Comparator
+            .comparing(NotificationDTO::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(NotificationDTO::getBroadcast, Comparator.reverseOrder())
+            .thenComparing(NotificationDTO::getId, Comparator.reverseOrder());
+    
     private final NotificationRepository notificationRepository;
-    private final UserRepository userRepository;
+    private final BroadcastNotificationRepository broadcastNotificationRepository;
+    private final BroadcastReadRepository broadcastReadRepository;
+    private final NotificationWatermarkRepository notificationWatermarkRepository;
     
-    @Transactional
     public void createNotificationForAnnouncement(Announcement announcement) {
-        // Get all users in the department
-        List<User> users = userRepository.findByDepartmentId(announcement.getDepartment().getId());
-        
-        // Create notification for each user
-        for (User user : users) {
-            Notification notification = new Notification();
-            notification.setUserId(user.getId());
-            notification.setTitle("New Announcement: " + announcement.getTitle());
-            notification.setMessage(announcement.getCreatedBy().getName() + " posted a new announcement in " + announcement.getDepartment().getName());
-            notification.setType(Notification.NotificationType.ANNOUNCEMENT);
-            notification.setReferenceId(announcement.getId());
-            notification.setIsRead(false);
-            
-            notificationRepository.save(notification);
+        if (announcement.getDepartment() == null) {
+            return;
         }
         
-        log.info("Created {} notifications for announcement {}", users.size(), announcement.getId());
+        broadcastToDepartment(
+                announcement.getDepartment().getId(),
+                null,
+                "New Announcement: " + announcement.getTitle(),
+                announcement.getCreatedBy().getName() + " posted a new announcement in " + announcement.getDepartment().getName(),
+                Notification.NotificationType.ANNOUNCEMENT,
+                announcement.getId()
+        );
     }
     
-    public PageResponse<NotificationDTO> getUserNotifications(Long userId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+    /**
+     * Store one notification for a whole department (optionally one role in it).
+     * Members see it through getUserNotifications; nothing is written per user.
+     */
+    public void broadcastToDepartment(Long departmentId, User.Role targetRole, String title, String message,
+                                      Notification.NotificationType type, Long referenceId) {
+        BroadcastNotification broadcast = new BroadcastNotification();
+        broadcast.setDepartmentId(departmentId);
+        broadcast.setTargetRole(targetRole);
+        broadcast.setTitle(title);
+        broadcast.setMessage(message);
+        broadcast.setType(type);
+        broadcast.setReferenceId(referenceId);
         
-        List<NotificationDTO> content = notifications.getContent().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        broadcast = broadcastNotificationRepository.save(broadcast);
+        log.info("Broadcast {} notification {} to department {}", type, broadcast.getId(), departmentId);
+    }
+    
+    /**
+     * One page of personal and broadcast notifications, newest first. For
+     * the next page pass the createdAt, id and broadcast flag of the last
+     * one returned; each source is read from that point on by index, so a
+     * page costs the same however deep it is.
+     */
+    public List<NotificationDTO> getUserNotifications(UserPrincipal user, LocalDateTime before, Long beforeId,
+                                                      boolean beforeBroadcast, int size) {
+        Long userId = user.getId();
+        Pageable pageable = PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
         
-        return new PageResponse<>(
-                content,
-                notifications.getNumber(),
-                notifications.getSize(),
-                notifications.getTotalElements(),
-                notifications.getTotalPages(),
-                notifications.isLast()
-        );
+        // At the same createdAt broadcasts come first, then personal notifications;
+        // within each source higher ids come first
+        List<Notification> personal = before == null
+                ? notificationRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, pageable)
+                : notificationRepository.findByUserIdBefore(userId, before,
+                        beforeBroadcast || beforeId == null ? Long.MAX_VALUE : beforeId, pageable);
+        
+        List<BroadcastNotification> broadcasts = new ArrayList<>();
+        if (user.getDepartmentId() != null) {
+            broadcasts = before == null
+                    ? broadcastNotificationRepository.findVisible(
+                            user.getDepartmentId(), user.getRole(), visibleSince(user), pageable)
+                    : broadcastNotificationRepository.findVisibleBefore(
+                            user.getDepartmentId(), user.getRole(), visibleSince(user), before,
+                            !beforeBroadcast ? 0L : beforeId != null ? beforeId : Long.MAX_VALUE, pageable);
+        }
+        
+        return merge(userId, personal, broadcasts).stream()
+                .limit(pageable.getPageSize())
+                .collect(Collectors.toList());
     }
     
-    public Long getUnreadCount(Long userId) {
-        return notificationRepository.countByUserIdAndIsReadFalse(userId);
+    public Long getUnreadCount(UserPrincipal user) {
+        Long userId = user.getId();
+        long unread = notificationRepository.countByUserIdAndIsReadFalse(userId);
+        
+        if (user.getDepartmentId() != null) {
+            unread += broadcastNotificationRepository.countUnread(
+                    user.getDepartmentId(),
+                    user.getRole(),
+                    visibleSince(user),
+                    getWatermark(userId),
+                    userId
+            );
+        }
+        
+        return unread;
     }
     
-    public List<NotificationDTO> getRecentNotifications(Long userId) {
+    public List<NotificationDTO> getRecentNotifications(UserPrincipal user) {
+        Long userId = user.getId();
         List<Notification> notifications = notificationRepository.findTop5ByUserIdOrderByCreatedAtDesc(userId);
-        return notifications.stream()
-                .map(this::convertToDTO)
+        
+        List<BroadcastNotification> broadcasts = new ArrayList<>();
+        if (user.getDepartmentId() != null) {
+            broadcasts = broadcastNotificationRepository.findVisible(
+                    user.getDepartmentId(), user.getRole(), visibleSince(user), PageRequest.of(0, 5));
+        }
+        
+        return merge(userId, notifications, broadcasts).stream()
+                .limit(5)
                 .collect(Collectors.toList());
     }
     
     @Transactional
-    public void markAsRead(Long notificationId, Long userId) {
+    public void markAsRead(Long notificationId, UserPrincipal user, boolean broadcast) {
+        if (broadcast) {
+            markBroadcastAsRead(notificationId, user);
+            return;
+        }
+        
         Notification notification = notificationRepository.findById(notificationId)
                 .orElseThrow(() -> new RuntimeException("Notification not found"));
         
-        if (!notification.getUserId().equals(userId)) {
+        if (!notification.getUserId().equals(user.getId())) {
             throw new RuntimeException("Unauthorized");
         }
         
@@ -91,14 +161,72 @@ public class NotificationService {
     }
     
     @Transactional
-    public void markAllAsRead(Long userId) {
-        List<Notification> unreadNotifications = notificationRepository.findByUserIdAndIsReadFalse(userId);
+    public void markAllAsRead(UserPrincipal user) {
+        Long userId = user.getId();
+        notificationRepository.markAllAsRead(userId);
         
-        for (Notification notification : unreadNotifications) {
-            notification.setIsRead(true);
+        if (user.getDepartmentId() == null) {
+            return;
         }
         
-        notificationRepository.saveAll(unreadNotifications);
+        // Move the watermark to the newest broadcast; per-broadcast reads below it are redundant
+        Long latest = broadcastNotificationRepository.findMaxIdByDepartmentId(user.getDepartmentId());
+        if (latest == null) {
+            return;
+        }
+        
+        notificationWatermarkRepository.advance(userId, latest);
+        broadcastReadRepository.deleteCoveredByWatermark(userId, latest);
+    }
+    
+    private void markBroadcastAsRead(Long broadcastId, UserPrincipal user) {
+        BroadcastNotification broadcast = broadcastNotificationRepository.findById(broadcastId)
+                .orElseThrow(() -> new RuntimeException("Notification not found"));
+        
+        if (!isVisibleTo(broadcast, user)) {
+            throw new RuntimeException("Unauthorized");
+        }
+        
+        if (broadcast.getId() > getWatermark(user.getId())) {
+            broadcastReadRepository.insertIgnore(user.getId(), broadcastId);
+        }
+    }
+    
+    private boolean isVisibleTo(BroadcastNotification broadcast, UserPrincipal user) {
+        return user.getDepartmentId() != null
+                && broadcast.getDepartmentId().equals(user.getDepartmentId())
+                && (broadcast.getTargetRole() == null || broadcast.getTargetRole() == user.getRole())
+                && !broadcast.getCreatedAt().isBefore(visibleSince(user));
+    }
+    
+    // Users only see broadcasts sent after they joined, as with per-user rows
+    private LocalDateTime visibleSince(UserPrincipal user) {
+        return user.getCreatedAt() != null ? user.getCreatedAt() : LocalDateTime.of(1970, 1, 1, 0, 0);
+    }
+    
+    private Long getWatermark(Long userId) {
+        return notificationWatermarkRepository.findById(userId)
+                .map(NotificationWatermark::getLastReadBroadcastId)
+                .orElse(0L);
+    }
+    
+    private List<NotificationDTO> merge(Long userId, List<Notification> notifications, List<BroadcastNotification> broadcasts) {
+        List<NotificationDTO> merged = new ArrayList<>(notifications.size() + broadcasts.size());
+        notifications.forEach(n -> merged.add(convertToDTO(n)));
+        
+        if (!broadcasts.isEmpty()) {
+            long watermark = getWatermark(userId);
+            Set<Long> readIds = new HashSet<>(broadcastReadRepository.findReadBroadcastIds(userId,
+                    broadcasts.stream().map(BroadcastNotification::getId).collect(Collectors.toList())));
+            
+            for (BroadcastNotification broadcast : broadcasts) {
+                boolean isRead = broadcast.getId() <= watermark || readIds.contains(broadcast.getId());
+                merged.add(convertToDTO(broadcast, isRead));
+            }
+        }
+        
+        merged.sort(NEWEST_FIRST);
+        return merged;
     }
     
     private NotificationDTO convertToDTO(Notification notification) {
@@ -110,6 +238,20 @@ public class NotificationService {
         dto.setReferenceId(notification.getReferenceId());
         dto.setIsRead(notification.getIsRead());
         dto.setCreatedAt(notification.getCreatedAt());
+        dto.setBroadcast(false);
+        return dto;
+    }
+    
+    private NotificationDTO convertToDTO(BroadcastNotification broadcast, boolean isRead) {
+        NotificationDTO dto = new NotificationDTO();
+        dto.setId(broadcast.getId());
+        dto.setTitle(broadcast.getTitle());
+        dto.setMessage(broadcast.getMessage());
+        dto.setType(broadcast.getType());
+        dto.setReferenceId(broadcast.getReferenceId());
+        dto.setIsRead(isRead);
+        dto.setCreatedAt(broadcast.getCreatedAt());
+        dto.setBroadcast(true);
         return dto;
     }
 }
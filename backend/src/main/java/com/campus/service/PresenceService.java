@@ -0,0 +1,247 @@
+package com.campus.service;
+
+import com.campus.dto.PresenceUpdateDTO;
+import com.campus.dto.TypingRequest;
+import com.campus.security.StompPrincipal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who is online in each department and who is typing, kept in memory only.
+ *
+ * Presence follows STOMP sessions: a user is online from their first
+ * connected session until the last one disconnects (a missed heart-beat
+ * closes the session, so dead clients drop out too). Changes are not sent
+ * as they happen; each tick sends one update per department with what
+ * changed since the previous tick, to /topic/department/{id}/presence,
+ * and one-to-one typing to the receiver's /user/queue/typing. Typing
+ * signals expire unless the client repeats them.
+ *
+ * With the broker relay each node tracks the sessions connected to it,
+ * and the user registry the nodes share through the broker tells whether a
+ * user still has a session elsewhere. A user whose last local session
+ * closes is only announced offline once no node reports them, so a user
+ * connected to two nodes stays online until both sessions are gone. The
+ * shared registry lags by up to half its expiration period, so such an
+ * offline update may come a few seconds late.
+ */
+@Service
+public class PresenceService {
+    
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatPermissionService chatPermissionService;
+    private final SimpUserRegistry userRegistry;
+    private final boolean clustered;
+    private final long typingTtlMs;
+    
+    private final Map<String, StompPrincipal> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> sessionCounts = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> onlineByDepartment = new ConcurrentHashMap<>();
+    
+    /** Latest presence per user since the last tick, by department; true means online. */
+    private final Map<Long, Map<Long, Boolean>> pendingPresence = new ConcurrentHashMap<>();
+    
+    /** Users gone from this node but still connected to another one, with their department. */
+    private final Map<Long, Long> connectedElsewhere = new ConcurrentHashMap<>();
+    
+    /** Typing expiry times, and the keys already announced as typing. */
+    private final Map<TypingKey, Long> typing = new ConcurrentHashMap<>();
+    private final Set<TypingKey> announcedTyping = ConcurrentHashMap.newKeySet();
+    
+    public PresenceService(
+            SimpMessagingTemplate messagingTemplate,
+            ChatPermissionService chatPermissionService,
+            SimpUserRegistry userRegistry,
+            @Value("${app.websocket.relay.enabled:false}") boolean clustered,
+            @Value("${app.chat.presence.typing-ttl-ms:5000}") long typingTtlMs
+    ) {
+        this.messagingTemplate = messagingTemplate;
+        this.chatPermissionService = chatPermissionService;
+        this.userRegistry = userRegistry;
+        this.clustered = clustered;
+        this.typingTtlMs = typingTtlMs;
+    }
+    
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        if (!(event.getUser() instanceof StompPrincipal principal)) {
+            return;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId == null || sessions.putIfAbsent(sessionId, principal) != null) {
+            return;
+        }
+        
+        sessionCounts.compute(principal.userId(), (userId, count) -> {
+            if (count == null) {
+                setOnline(principal, true);
+                return 1;
+            }
+            return count + 1;
+        });
+    }
+    
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        // May be published more than once per session; only the first removal counts
+        StompPrincipal principal = sessions.remove(event.getSessionId());
+        if (principal == null) {
+            return;
+        }
+        
+        sessionCounts.compute(principal.userId(), (userId, count) -> {
+            if (count == null || count <= 1) {
+                setOnline(principal, false);
+                return null;
+            }
+            return count - 1;
+        });
+    }
+    
+    /**
+     * Record a typing signal. Group typing requires membership of the
+     * department, one-to-one typing a receiver in the sender's department.
+     */
+    public void typing(StompPrincipal sender, TypingRequest request) {
+        TypingKey key;
+        if (request.getDepartmentId() != null) {
+            if (!request.getDepartmentId().equals(sender.departmentId())) {
+                return;
+            }
+            key = new TypingKey(request.getDepartmentId(), null, sender.userId());
+        } else if (request.getReceiverId() != null && sender.departmentId() != null
+                && chatPermissionService.canReadGroup(request.getReceiverId(), sender.departmentId())) {
+            key = new TypingKey(null, request.getReceiverId(), sender.userId());
+        } else {
+            return;
+        }
+        
+        if (request.isTyping()) {
+            typing.put(key, System.currentTimeMillis() + typingTtlMs);
+        } else {
+            // Expire now; the next tick announces the stop if the start went out
+            typing.computeIfPresent(key, (k, expires) -> 0L);
+        }
+    }
+    
+    public List<Long> getOnlineUsers(Long departmentId) {
+        if (clustered) {
+            // Remote users carry no principal, so their department comes from the permission cache
+            List<Long> online = new ArrayList<>();
+            for (SimpUser user : userRegistry.getUsers()) {
+                Long userId = userId(user);
+                if (userId != null && chatPermissionService.canReadGroup(userId, departmentId)) {
+                    online.add(userId);
+                }
+            }
+            return online;
+        }
+        Set<Long> online = onlineByDepartment.get(departmentId);
+        return online != null ? new ArrayList<>(online) : new ArrayList<>();
+    }
+    
+    public boolean isOnline(Long userId) {
+        return sessionCounts.containsKey(userId) || clustered && connectedAnywhere(userId);
+    }
+    
+    /**
+     * Send what changed since the previous tick.
+     */
+    @Scheduled(fixedDelayString = "${app.chat.presence.tick-ms:1000}")
+    public void tick() {
+        Map<Long, PresenceUpdateDTO> groupUpdates = new HashMap<>();
+        Map<Long, PresenceUpdateDTO> userUpdates = new HashMap<>();
+        
+        pendingPresence.forEach((departmentId, changes) -> changes.forEach((userId, online) -> {
+            // Leave a change that arrived during this pass for the next tick
+            if (changes.remove(userId, online)) {
+                if (!online && clustered && connectedAnywhere(userId)) {
+                    connectedElsewhere.put(userId, departmentId);
+                    return;
+                }
+                PresenceUpdateDTO update = groupUpdates.computeIfAbsent(departmentId, PresenceUpdateDTO::new);
+                (online ? update.getOnline() : update.getOffline()).add(userId);
+            }
+        }));
+        
+        // Announce users connected elsewhere once the other nodes stop reporting them
+        connectedElsewhere.forEach((userId, departmentId) -> {
+            if (sessionCounts.containsKey(userId)) {
+                connectedElsewhere.remove(userId, departmentId);
+            } else if (!connectedAnywhere(userId) && connectedElsewhere.remove(userId, departmentId)) {
+                groupUpdates.computeIfAbsent(departmentId, PresenceUpdateDTO::new).getOffline().add(userId);
+            }
+        });
+        
+        long now = System.currentTimeMillis();
+        typing.forEach((key, expires) -> {
+            if (expires <= now) {
+                if (typing.remove(key, expires) && announcedTyping.remove(key)) {
+                    updateFor(key, groupUpdates, userUpdates).getStoppedTyping().add(key.userId());
+                }
+            } else if (announcedTyping.add(key)) {
+                updateFor(key, groupUpdates, userUpdates).getTyping().add(key.userId());
+            }
+        });
+        
+        groupUpdates.forEach((departmentId, update) ->
+                messagingTemplate.convertAndSend("/topic/department/" + departmentId + "/presence", update));
+        userUpdates.forEach((receiverId, update) ->
+                messagingTemplate.convertAndSendToUser(receiverId.toString(), "/queue/typing", update));
+    }
+    
+    private void setOnline(StompPrincipal principal, boolean online) {
+        Long departmentId = principal.departmentId();
+        if (departmentId == null) {
+            return;
+        }
+        Set<Long> members = onlineByDepartment.computeIfAbsent(departmentId, id -> ConcurrentHashMap.newKeySet());
+        if (online) {
+            members.add(principal.userId());
+            connectedElsewhere.remove(principal.userId());
+        } else {
+            members.remove(principal.userId());
+            typing.replaceAll((key, expires) -> key.userId().equals(principal.userId()) ? 0L : expires);
+        }
+        pendingPresence.computeIfAbsent(departmentId, id -> new ConcurrentHashMap<>())
+                .put(principal.userId(), online);
+    }
+    
+    private boolean connectedAnywhere(Long userId) {
+        SimpUser user = userRegistry.getUser(userId.toString());
+        return user != null && user.hasSessions();
+    }
+    
+    private Long userId(SimpUser user) {
+        try {
+            return Long.valueOf(user.getName());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+    
+    private PresenceUpdateDTO updateFor(TypingKey key, Map<Long, PresenceUpdateDTO> groupUpdates,
+                                        Map<Long, PresenceUpdateDTO> userUpdates) {
+        return key.departmentId() != null
+                ? groupUpdates.computeIfAbsent(key.departmentId(), PresenceUpdateDTO::new)
+                : userUpdates.computeIfAbsent(key.receiverId(), id -> new PresenceUpdateDTO(null));
+    }
+    
+    private record TypingKey(Long departmentId, Long receiverId, Long userId) {
+    }
+}
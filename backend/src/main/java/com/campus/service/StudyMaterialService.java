@@ -7,16 +7,17 @@ import com.campus.model.Department;
 import com.campus.model.Notification;
 import com.campus.model.StudyMaterial;
 import com.campus.model.User;
-import com.campus.repository.NotificationRepository;
 import com.campus.repository.StudyMaterialRepository;
 import com.campus.repository.UserRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -27,8 +28,10 @@ public class StudyMaterialService {
     
     private final StudyMaterialRepository studyMaterialRepository;
     private final UserRepository userRepository;
-    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
     private final FileStorageService fileStorageService;
+    private final FileDownloadService fileDownloadService;
+    private final DownloadCounterService downloadCounterService;
     
     @Transactional
     public StudyMaterialDTO uploadMaterial(UploadMaterialRequest request, MultipartFile file, Long facultyId) {
@@ -113,24 +116,25 @@ public class StudyMaterialService {
         
         // Delete record
         studyMaterialRepository.delete(material);
+        downloadCounterService.forget(id);
     }
     
-    @Transactional
-    public Resource downloadMaterial(Long id) {
+    /**
+     * Stream a material's file and count the download. Runs outside a
+     * transaction so no connection is held while the file is sent; ranged
+     * resumes and 304 revalidations are not counted as new downloads.
+     */
+    public void downloadMaterial(Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
         StudyMaterial material = studyMaterialRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Study material not found"));
         
-        // Increment download count
-        material.setDownloadCount(material.getDownloadCount() + 1);
-        studyMaterialRepository.save(material);
-        
-        // Load file - extract subfolder from fileUrl
-        String fileUrl = material.getFileUrl();
-        int lastSlash = fileUrl.lastIndexOf('/');
-        String subFolder = fileUrl.substring(0, lastSlash);
-        String fileName = fileUrl.substring(lastSlash + 1);
+        boolean newDownload = fileDownloadService.serve(
+                material.getFileUrl(), material.getFileName(), material.getFileType(), false,
+                FileDownloadService.REVALIDATE, request, response);
         
-        return fileStorageService.loadFileAsResource(fileName, subFolder);
+        if (newDownload) {
+            downloadCounterService.recordDownload(id);
+        }
     }
     
     public List<StudyMaterialDTO> searchMaterials(String query, Long departmentId, String subject, String type) {
@@ -146,24 +150,17 @@ public class StudyMaterialService {
     
     private void notifyDepartmentStudents(StudyMaterial material) {
         Department department = material.getDepartment();
-        List<User> students = userRepository.findByDepartmentId(department.getId()).stream()
-                .filter(u -> u.getRole() == User.Role.STUDENT)
-                .collect(Collectors.toList());
         
-        for (User student : students) {
-            Notification notification = new Notification();
-            notification.setUserId(student.getId());
-            notification.setTitle("New Study Material");
-            notification.setMessage("New " + material.getType().toString().replace("_", " ").toLowerCase() + 
-                    " uploaded: " + material.getTitle() + " (" + material.getSubject() + ")");
-            notification.setType(Notification.NotificationType.STUDY_MATERIAL);
-            notification.setReferenceId(material.getId());
-            notification.setIsRead(false);
-            
-            notificationRepository.save(notification);
-        }
-        
-        log.info("Sent study material notifications to {} students", students.size());
+        // One broadcast row for the department's students, merged into their lists at read time
+        notificationService.broadcastToDepartment(
+                department.getId(),
+                User.Role.STUDENT,
+                "New Study Material",
+                "New " + material.getType().toString().replace("_", " ").toLowerCase() + 
+                        " uploaded: " + material.getTitle() + " (" + material.getSubject() + ")",
+                Notification.NotificationType.STUDY_MATERIAL,
+                material.getId()
+        );
     }
     
     private StudyMaterialDTO convertToDTO(StudyMaterial material) {
@@ -181,7 +178,8 @@ public class StudyMaterialService {
         dto.setFileName(material.getFileName());
         dto.setFileSize(material.getFileSize());
         dto.setFileType(material.getFileType());
-        dto.setDownloadCount(material.getDownloadCount());
+        int stored = material.getDownloadCount() != null ? material.getDownloadCount() : 0;
+        dto.setDownloadCount(stored + (int) downloadCounterService.getPendingCount(material.getId()));
         dto.setCreatedAt(material.getCreatedAt());
         dto.setUpdatedAt(material.getUpdatedAt());
         return dto;
@@ -0,0 +1,274 @@
+package com.campus.service;
+
+import com.campus.util.TtlCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds square JPEG thumbnails of uploaded images in the background.
+ *
+ * Thumbnails are stored next to the original through FileStorageService,
+ * named {@code <name>_t<size>.jpg}. Generation is triggered on upload and,
+ * for images uploaded before thumbnails existed, on the first request for
+ * one; until it finishes callers fall back to the original. The queue is
+ * bounded and drops work when full, since a later request retries it.
+ *
+ * Image dimensions are read before decoding: images over
+ * {@code app.images.max-source-pixels} are refused, and others are decoded
+ * subsampled to little more than the largest thumbnail needs. Existing
+ * thumbnails and failed attempts are remembered, so repeated requests do
+ * not check storage or retry unreadable files each time.
+ */
+@Service
+@Slf4j
+public class ThumbnailService {
+    
+    private static final String EXTENSION = ".jpg";
+    
+    private final FileStorageService fileStorageService;
+    private final int[] sizes;
+    private final float quality;
+    private final ThreadPoolExecutor executor;
+    private final long maxSourcePixels;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    
+    /** Thumbnails known to exist; they never change once written. */
+    private final TtlCache<String, Boolean> available;
+    
+    /** Originals that could not be turned into thumbnails recently. */
+    private final TtlCache<String, Boolean> failed;
+    
+    public ThumbnailService(
+            FileStorageService fileStorageService,
+            @Value("${app.images.thumbnail-sizes:64,256}") int[] sizes,
+            @Value("${app.images.thumbnail-quality:0.85}") float quality,
+            @Value("${app.images.threads:1}") int threads,
+            @Value("${app.images.queue-capacity:100}") int queueCapacity,
+            @Value("${app.images.max-source-pixels:40000000}") long maxSourcePixels,
+            @Value("${app.images.lookup-cache.max-entries:10000}") int lookupCacheMaxEntries,
+            @Value("${app.images.failure-ttl-seconds:600}") long failureTtlSeconds
+    ) {
+        this.fileStorageService = fileStorageService;
+        this.sizes = Arrays.stream(sizes).sorted().toArray();
+        this.quality = quality;
+        this.maxSourcePixels = maxSourcePixels;
+        this.available = new TtlCache<>(lookupCacheMaxEntries, Duration.ofHours(1));
+        this.failed = new TtlCache<>(lookupCacheMaxEntries, Duration.ofSeconds(failureTtlSeconds));
+        for (int size : this.sizes) {
+            fileStorageService.registerVariant(variant(size), EXTENSION);
+        }
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+    
+    /**
+     * Queue thumbnail generation for an uploaded image.
+     */
+    public void generateAsync(String reference) {
+        if (!inFlight.add(reference)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!generate(reference)) {
+                        failed.put(reference, Boolean.TRUE);
+                    }
+                } catch (Exception e) {
+                    failed.put(reference, Boolean.TRUE);
+                    log.warn("Could not create thumbnails for {}: {}", reference, e.getMessage());
+                } finally {
+                    inFlight.remove(reference);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(reference);
+            log.debug("Thumbnail queue full; skipping {}", reference);
+        }
+    }
+    
+    /**
+     * The smallest thumbnail at least {@code size} pixels wide, if it has been
+     * generated. Queues generation when it is missing.
+     */
+    public Optional<String> thumbnailFor(String reference, int size) {
+        int chosen = Arrays.stream(sizes).filter(candidate -> candidate >= size).findFirst()
+                .orElse(sizes[sizes.length - 1]);
+        String thumbnail = fileStorageService.variantReference(reference, variant(chosen), EXTENSION);
+        if (available.getIfPresent(thumbnail) != null) {
+            return Optional.of(thumbnail);
+        }
+        if (failed.getIfPresent(reference) != null || inFlight.contains(reference)) {
+            return Optional.empty();
+        }
+        if (fileStorageService.exists(thumbnail)) {
+            available.put(thumbnail, Boolean.TRUE);
+            return Optional.of(thumbnail);
+        }
+        if (fileStorageService.exists(reference)) {
+            generateAsync(reference);
+        } else {
+            failed.put(reference, Boolean.TRUE);
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * @return false when the original is not an image or is too large
+     */
+    private boolean generate(String reference) throws IOException {
+        BufferedImage original;
+        try (InputStream in = fileStorageService.openStream(reference)) {
+            original = readForThumbnails(reference, in);
+        }
+        if (original == null) {
+            return false;
+        }
+        
+        long start = System.nanoTime();
+        for (int size : sizes) {
+            String thumbnail = fileStorageService.variantReference(reference, variant(size), EXTENSION);
+            Path temp = fileStorageService.createTempFile();
+            try {
+                writeJpeg(squareThumbnail(original, size), temp);
+                fileStorageService.storeVariant(thumbnail, temp);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            available.put(thumbnail, Boolean.TRUE);
+        }
+        log.debug("Created thumbnails for {} in {} ms", reference,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return true;
+    }
+    
+    /**
+     * Decode the centre square of the image, subsampled so it is at most
+     * about twice the largest thumbnail. The size is checked from the header
+     * first, so nothing is decoded for images over the pixel limit.
+     */
+    private BufferedImage readForThumbnails(String reference, InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                log.debug("Skipping thumbnails for {}: not a readable image", reference);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    log.info("Skipping thumbnails for {}: {}x{} is over the pixel limit", reference, width, height);
+                    return null;
+                }
+                
+                int side = Math.min(width, height);
+                int step = Math.max(1, side / (sizes[sizes.length - 1] * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle((width - side) / 2, (height - side) / 2, side, side));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Centre-crop to a square and scale in halving steps, which keeps
+     * bilinear filtering sharp for large reductions. Always draws at least
+     * once so the result is an opaque RGB image.
+     */
+    private BufferedImage squareThumbnail(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        BufferedImage current = source.getSubimage(
+                (source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side);
+        
+        int currentSize = side;
+        do {
+            int next = Math.max(size, currentSize / 2);
+            BufferedImage scaled = new BufferedImage(next, next, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, next, next);
+                graphics.drawImage(current, 0, 0, next, next, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = scaled;
+            currentSize = next;
+        } while (currentSize > size);
+        
+        return current;
+    }
+    
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+    
+    private String variant(int size) {
+        return "t" + size;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
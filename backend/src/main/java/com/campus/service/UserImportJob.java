@@ -0,0 +1,75 @@
+package com.campus.service;
+
+import com.campus.dto.BulkUploadResponse;
+import com.campus.dto.ImportJobStatus;
+import com.campus.model.User;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of one bulk user import. Written by the import thread and read
+ * by status requests, so every accessor is synchronized.
+ */
+public class UserImportJob {
+    
+    public enum State {
+        QUEUED, PARSING, IMPORTING, COMPLETED, FAILED
+    }
+    
+    @Getter
+    private final String id;
+    private final User.Role role;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    
+    private State state = State.QUEUED;
+    private int totalRows;
+    private int processedRows;
+    private String message;
+    private LocalDateTime finishedAt;
+    private BulkUploadResponse result;
+    
+    public UserImportJob(String id, User.Role role) {
+        this.id = id;
+        this.role = role;
+    }
+    
+    public synchronized void parsing() {
+        state = State.PARSING;
+    }
+    
+    public synchronized void importing(int totalRows) {
+        this.state = State.IMPORTING;
+        this.totalRows = totalRows;
+    }
+    
+    public synchronized void rowsParsed(int totalRows) {
+        this.totalRows = totalRows;
+    }
+    
+    public synchronized void rowsProcessed(int count) {
+        processedRows += count;
+    }
+    
+    public synchronized void completed(BulkUploadResponse result) {
+        this.state = State.COMPLETED;
+        this.result = result;
+        this.processedRows = result.getTotalRows();
+        this.finishedAt = LocalDateTime.now();
+    }
+    
+    public synchronized void failed(String message) {
+        this.state = State.FAILED;
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+    }
+    
+    public synchronized boolean isFinishedBefore(LocalDateTime cutoff) {
+        return finishedAt != null && finishedAt.isBefore(cutoff);
+    }
+    
+    public synchronized ImportJobStatus toStatus() {
+        return new ImportJobStatus(id, role.name(), state.name(), totalRows, processedRows,
+                message, submittedAt, finishedAt, result);
+    }
+}
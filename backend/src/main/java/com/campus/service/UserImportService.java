@@ -0,0 +1,120 @@
+package com.campus.service;
+
+import com.campus.dto.ImportJobStatus;
+import com.campus.model.User;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs bulk user imports in the background. The upload is spooled to a
+ * temporary file so the request can return straight away; clients poll
+ * the job status until it completes.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+    
+    private final ExcelService excelService;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, UserImportJob> jobs = new ConcurrentHashMap<>();
+    
+    public UserImportService(
+            ExcelService excelService,
+            @Value("${app.import.max-queued-jobs:5}") int maxQueuedJobs
+    ) {
+        this.excelService = excelService;
+        this.executor = new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedJobs),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-import");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+    
+    public ImportJobStatus submit(MultipartFile file, User.Role role) {
+        pruneFinishedJobs();
+        
+        Path upload;
+        try {
+            upload = Files.createTempFile("user-import-", ".xlsx");
+            file.transferTo(upload);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store uploaded file: " + e.getMessage(), e);
+        }
+        
+        UserImportJob job = new UserImportJob(UUID.randomUUID().toString(), role);
+        jobs.put(job.getId(), job);
+        
+        try {
+            executor.execute(() -> run(job, upload, role));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            deleteQuietly(upload);
+            throw new RuntimeException("Too many imports are queued; try again later");
+        }
+        
+        return job.toStatus();
+    }
+    
+    public ImportJobStatus getStatus(String jobId) {
+        UserImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Import job not found: " + jobId);
+        }
+        return job.toStatus();
+    }
+    
+    private void run(UserImportJob job, Path upload, User.Role role) {
+        long start = System.nanoTime();
+        try {
+            job.completed(excelService.importUsers(upload.toFile(), role, job));
+            log.info("User import {} finished in {} ms", job.getId(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            log.error("User import {} failed", job.getId(), e);
+            job.failed(e.getMessage());
+        } finally {
+            deleteQuietly(upload);
+        }
+    }
+    
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
+        jobs.values().removeIf(job -> job.isFinishedBefore(cutoff));
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary import file {}", path, e);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
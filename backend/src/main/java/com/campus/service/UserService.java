@@ -4,20 +4,24 @@ import com.campus.dto.CreateUserRequest;
 import com.campus.dto.PageResponse;
 import com.campus.dto.UpdateUserRequest;
 import com.campus.dto.UserDTO;
+import com.campus.event.UserChangedEvent;
 import com.campus.exception.CustomExceptions;
 import com.campus.model.Department;
 import com.campus.model.User;
 import com.campus.repository.DepartmentRepository;
 import com.campus.repository.UserRepository;
+import com.campus.repository.UserSpecifications;
 import com.campus.util.PasswordGenerator;
 import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -32,6 +36,7 @@ public class UserService {
     private final DepartmentRepository departmentRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Value("${app.admin.email}")
     private String adminEmail;
@@ -94,29 +99,10 @@ public class UserService {
     // Get all users with pagination and filtering
     public PageResponse<UserDTO> getAllUsers(int page, int size, User.Role role, Long departmentId, String search) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<User> userPage;
-        
-        if (search != null && !search.isEmpty()) {
-            userPage = userRepository.findAll(pageable);
-            // Filter by search in memory (for simplicity)
-            List<User> filtered = userPage.getContent().stream()
-                .filter(u -> u.getName().toLowerCase().contains(search.toLowerCase()) ||
-                            u.getEmail().toLowerCase().contains(search.toLowerCase()))
-                .collect(Collectors.toList());
-            userPage = new org.springframework.data.domain.PageImpl<>(filtered, pageable, filtered.size());
-        } else if (role != null && departmentId != null) {
-            userPage = userRepository.findAll(pageable);
-            List<User> filtered = userPage.getContent().stream()
-                .filter(u -> u.getRole() == role && u.getDepartment() != null && u.getDepartment().getId().equals(departmentId))
-                .collect(Collectors.toList());
-            userPage = new org.springframework.data.domain.PageImpl<>(filtered, pageable, filtered.size());
-        } else if (role != null) {
-            userPage = new org.springframework.data.domain.PageImpl<>(userRepository.findByRole(role), pageable, userRepository.findByRole(role).size());
-        } else if (departmentId != null) {
-            userPage = new org.springframework.data.domain.PageImpl<>(userRepository.findByDepartmentId(departmentId), pageable, userRepository.findByDepartmentId(departmentId).size());
-        } else {
-            userPage = userRepository.findAll(pageable);
-        }
+        Specification<User> filter = Specification.where(UserSpecifications.hasRole(role))
+                .and(UserSpecifications.inDepartment(departmentId))
+                .and(UserSpecifications.matchesSearch(search));
+        Page<User> userPage = userRepository.findAll(filter, pageable);
         
         List<UserDTO> userDTOs = userPage.getContent().stream()
                 .map(this::convertToDTO)
@@ -176,6 +162,7 @@ public class UserService {
         
         // Save user
         user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
         
         // Send invitation email
         emailService.sendInvitationEmail(user.getEmail(), user.getName(), tempPassword);
@@ -214,6 +201,7 @@ public class UserService {
         }
         
         user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
         return convertToDTO(user);
     }
     
@@ -224,6 +212,7 @@ public class UserService {
                 .orElseThrow(() -> new CustomExceptions.UserNotFoundException("User not found with id: " + id));
         user.setIsActive(false);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
     }
     
     // Toggle user status
@@ -233,6 +222,7 @@ public class UserService {
                 .orElseThrow(() -> new CustomExceptions.UserNotFoundException("User not found with id: " + id));
         user.setIsActive(!user.getIsActive());
         user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
         return convertToDTO(user);
     }
     
@@ -0,0 +1,42 @@
+package com.campus.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Where FileStorageService keeps deduplicated upload content.
+ *
+ * Keys are relative, slash-separated names chosen by the caller. Reference
+ * counting and locking stay in FileStorageService; implementations only
+ * move bytes. Select one with {@code app.storage.type} ({@code local} or
+ * {@code s3}).
+ */
+public interface BlobStore {
+    
+    boolean exists(String key) throws IOException;
+    
+    /**
+     * Store the content of {@code source} under {@code key}, replacing any
+     * existing object. The source file is left in place, so it can be put
+     * again; the caller deletes it afterwards.
+     */
+    void put(String key, Path source, long size) throws IOException;
+    
+    void delete(String key) throws IOException;
+    
+    InputStream open(String key) throws IOException;
+    
+    /**
+     * The blob as a local file, if this store keeps blobs on local disk.
+     */
+    Optional<Path> localPath(String key);
+    
+    /**
+     * A short-lived URL the client can download the blob from directly, if
+     * this store supports it.
+     */
+    Optional<URI> presignedDownloadUrl(String key, String downloadName, String contentType, boolean inline);
+}
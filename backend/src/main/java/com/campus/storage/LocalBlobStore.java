@@ -0,0 +1,84 @@
+package com.campus.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps blobs under {@code <file.upload-dir>/blobs}. Downloads are served
+ * from the local file, so this store never presigns.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+    
+    private final Path root;
+    
+    public LocalBlobStore(@Value("${file.upload-dir:d:/Demo/uploads}") String uploadDir) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize().resolve("blobs");
+    }
+    
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+    
+    @Override
+    public void put(String key, Path source, long size) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        // Uploads are spooled inside the upload directory, so a hard link
+        // shares their data without consuming them; the rename then makes
+        // the blob appear complete or not at all
+        Path staged = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".part");
+        try {
+            Files.createLink(staged, source);
+        } catch (UnsupportedOperationException | FileSystemException ex) {
+            Files.copy(source, staged);
+        }
+        try {
+            Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+    
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+    
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+    
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+    
+    @Override
+    public Optional<URI> presignedDownloadUrl(String key, String downloadName, String contentType, boolean inline) {
+        return Optional.empty();
+    }
+    
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid blob key " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,335 @@
+package com.campus.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps blobs in an S3-compatible bucket (AWS S3, MinIO, ...) over plain
+ * HTTP with SigV4 signing.
+ *
+ * Files larger than one part are sent as a multipart upload, streaming
+ * each part from the spooled file with a bounded number of parts in flight.
+ * Downloads are redirected to presigned GET URLs so file bytes never pass
+ * through the application.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+@Slf4j
+public class S3BlobStore implements BlobStore {
+    
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+    
+    private final HttpClient httpClient;
+    private final S3RequestSigner signer;
+    private final String baseUrl;
+    private final String host;
+    private final String pathPrefix;
+    private final String keyPrefix;
+    private final long partSize;
+    private final int uploadConcurrency;
+    private final Duration presignTtl;
+    
+    public S3BlobStore(
+            @Value("${app.storage.s3.endpoint}") String endpoint,
+            @Value("${app.storage.s3.region:us-east-1}") String region,
+            @Value("${app.storage.s3.bucket}") String bucket,
+            @Value("${app.storage.s3.access-key}") String accessKey,
+            @Value("${app.storage.s3.secret-key}") String secretKey,
+            @Value("${app.storage.s3.path-style:true}") boolean pathStyle,
+            @Value("${app.storage.s3.key-prefix:blobs/}") String keyPrefix,
+            @Value("${app.storage.s3.part-size-mb:8}") int partSizeMb,
+            @Value("${app.storage.s3.upload-concurrency:4}") int uploadConcurrency,
+            @Value("${app.storage.s3.presign-ttl-seconds:300}") long presignTtlSeconds
+    ) {
+        URI uri = URI.create(endpoint);
+        String authority = pathStyle ? uri.getHost() : bucket + "." + uri.getHost();
+        if (uri.getPort() != -1) {
+            authority += ":" + uri.getPort();
+        }
+        
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.signer = new S3RequestSigner(accessKey, secretKey, region);
+        this.baseUrl = uri.getScheme() + "://" + authority;
+        this.host = authority;
+        this.pathPrefix = pathStyle ? "/" + S3RequestSigner.encode(bucket, true) : "";
+        this.keyPrefix = keyPrefix;
+        // S3 rejects parts below 5 MB other than the last
+        this.partSize = Math.max(5, partSizeMb) * 1024L * 1024L;
+        this.uploadConcurrency = Math.max(1, uploadConcurrency);
+        this.presignTtl = Duration.ofSeconds(presignTtlSeconds);
+    }
+    
+    @Override
+    public boolean exists(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", key, new TreeMap<>(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        check(response, "HEAD", key, null);
+        return true;
+    }
+    
+    @Override
+    public void put(String key, Path source, long size) throws IOException {
+        if (size <= partSize) {
+            HttpResponse<String> response = send("PUT", key, new TreeMap<>(),
+                    HttpRequest.BodyPublishers.ofFile(source), HttpResponse.BodyHandlers.ofString());
+            check(response, "PUT", key, response.body());
+            return;
+        }
+        
+        String uploadId = initiateMultipart(key);
+        try {
+            List<String> etags = uploadParts(key, uploadId, source, size);
+            completeMultipart(key, uploadId, etags);
+        } catch (IOException | RuntimeException e) {
+            abortMultipart(key, uploadId);
+            throw e;
+        }
+    }
+    
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", key, new TreeMap<>(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 404) {
+            check(response, "DELETE", key, response.body());
+        }
+    }
+    
+    @Override
+    public InputStream open(String key) throws IOException {
+        HttpResponse<InputStream> response = send("GET", key, new TreeMap<>(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 != 2) {
+            String body = new String(response.body().readAllBytes(), StandardCharsets.UTF_8);
+            check(response, "GET", key, body);
+        }
+        return response.body();
+    }
+    
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+    
+    @Override
+    public Optional<URI> presignedDownloadUrl(String key, String downloadName, String contentType, boolean inline) {
+        SortedMap<String, String> query = new TreeMap<>();
+        query.put("response-content-disposition",
+                (inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                        .filename(downloadName, StandardCharsets.UTF_8)
+                        .build()
+                        .toString());
+        if (contentType != null) {
+            query.put("response-content-type", contentType);
+        }
+        
+        String path = objectPath(key);
+        String signedQuery = signer.presign("GET", host, path, query, presignTtl, Instant.now());
+        return Optional.of(URI.create(baseUrl + path + "?" + signedQuery));
+    }
+    
+    private String initiateMultipart(String key) throws IOException {
+        SortedMap<String, String> query = new TreeMap<>();
+        query.put("uploads", "");
+        HttpResponse<String> response = send("POST", key, query,
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        check(response, "POST ?uploads", key, response.body());
+        
+        Matcher matcher = UPLOAD_ID.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IOException("S3 did not return an upload id for " + key);
+        }
+        return matcher.group(1);
+    }
+    
+    private List<String> uploadParts(String key, String uploadId, Path source, long size) throws IOException {
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        List<CompletableFuture<String>> parts = new ArrayList<>(partCount);
+        Semaphore inFlight = new Semaphore(uploadConcurrency);
+        
+        try {
+            for (int part = 1; part <= partCount; part++) {
+                long offset = (part - 1) * partSize;
+                long length = Math.min(partSize, size - offset);
+                
+                SortedMap<String, String> query = new TreeMap<>();
+                query.put("partNumber", Integer.toString(part));
+                query.put("uploadId", uploadId);
+                HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                        HttpRequest.BodyPublishers.ofInputStream(() -> slice(source, offset, length)), length);
+                
+                inFlight.acquire();
+                int partNumber = part;
+                parts.add(httpClient.sendAsync(request("PUT", key, query, body), HttpResponse.BodyHandlers.ofString())
+                        .whenComplete((response, error) -> inFlight.release())
+                        .thenApply(response -> {
+                            if (response.statusCode() / 100 != 2) {
+                                throw new UncheckedIOException(new IOException("S3 upload of part " + partNumber +
+                                        " of " + key + " failed with status " + response.statusCode() + ": " + response.body()));
+                            }
+                            return response.headers().firstValue("ETag")
+                                    .orElseThrow(() -> new UncheckedIOException(
+                                            new IOException("S3 returned no ETag for part " + partNumber + " of " + key)));
+                        }));
+            }
+            
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading " + key);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+            throw cause instanceof IOException io ? io : new IOException("S3 upload of " + key + " failed", cause);
+        }
+        
+        return parts.stream().map(CompletableFuture::join).toList();
+    }
+    
+    private void completeMultipart(String key, String uploadId, List<String> etags) throws IOException {
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < etags.size(); i++) {
+            xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(etags.get(i).replace("\"", "&quot;")).append("</ETag></Part>");
+        }
+        xml.append("</CompleteMultipartUpload>");
+        
+        SortedMap<String, String> query = new TreeMap<>();
+        query.put("uploadId", uploadId);
+        HttpResponse<String> response = send("POST", key, query,
+                HttpRequest.BodyPublishers.ofString(xml.toString()), HttpResponse.BodyHandlers.ofString());
+        // A completion can fail after the 200 status has been sent
+        if (response.body() != null && response.body().contains("<Error>")) {
+            throw new IOException("S3 could not complete the upload of " + key + ": " + response.body());
+        }
+        check(response, "POST ?uploadId", key, response.body());
+    }
+    
+    private void abortMultipart(String key, String uploadId) {
+        SortedMap<String, String> query = new TreeMap<>();
+        query.put("uploadId", uploadId);
+        try {
+            send("DELETE", key, query, HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            log.warn("Could not abort multipart upload {} of {}", uploadId, key, e);
+        }
+    }
+    
+    private <T> HttpResponse<T> send(String method, String key, SortedMap<String, String> query,
+                                     HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request(method, key, query, body), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during S3 " + method + " of " + key);
+        }
+    }
+    
+    private HttpRequest request(String method, String key, SortedMap<String, String> query,
+                                HttpRequest.BodyPublisher body) {
+        String path = objectPath(key);
+        String queryString = S3RequestSigner.canonicalQuery(query);
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path + (queryString.isEmpty() ? "" : "?" + queryString)))
+                .timeout(REQUEST_TIMEOUT)
+                .method(method, body);
+        
+        Map<String, String> headers = signer.sign(method, host, path, query,
+                S3RequestSigner.UNSIGNED_PAYLOAD, Instant.now());
+        headers.forEach(builder::header);
+        return builder.build();
+    }
+    
+    private String objectPath(String key) {
+        return pathPrefix + "/" + S3RequestSigner.encode(keyPrefix + key, false);
+    }
+    
+    private void check(HttpResponse<?> response, String operation, String key, String body) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 " + operation + " of " + key + " failed with status " +
+                    response.statusCode() + (body != null ? ": " + body : ""));
+        }
+    }
+    
+    private static InputStream slice(Path source, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(source, StandardOpenOption.READ).position(offset);
+            return new SliceInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Reads at most {@code remaining} bytes from the wrapped stream.
+     */
+    private static final class SliceInputStream extends FilterInputStream {
+        
+        private long remaining;
+        
+        SliceInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.campus.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Small bounded in-memory cache with a time-to-live per entry.
+ *
+ * Backed by a {@link ConcurrentHashMap} with no cache-wide lock, so hits
+ * are a single map read. Each entry expires {@code ttl} after it was
+ * loaded. Once more than {@code maxEntries} are held, expired entries are
+ * dropped and, if that is not enough, arbitrary ones until a tenth of the
+ * space is free again. A value whose key was invalidated while it was
+ * loading is returned to its caller but not stored, so a slow load can
+ * never put stale data back after {@link #invalidate} or {@link #clear}.
+ * Loads of other keys are unaffected.
+ */
+public class TtlCache<K, V> {
+    
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    
+    /** Version of the last invalidation of each key newer than {@link #clearedAt}. */
+    private final Map<K, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong clearedAt = new AtomicLong();
+    private final AtomicBoolean trimming = new AtomicBoolean();
+    
+    public TtlCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+    
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                return entry.value;
+            }
+            entries.remove(key, entry);
+        }
+        
+        long stamp = version.get();
+        V value = loader.apply(key);
+        if (value == null) {
+            return null;
+        }
+        
+        // Runs atomically with invalidate's removal of the same key: either the
+        // invalidation is visible here or it removes what is stored
+        entries.compute(key, (k, current) -> invalidatedSince(k, stamp)
+                ? current
+                : new Entry<>(value, System.nanoTime()));
+        if (entries.size() > maxEntries) {
+            trim();
+        }
+        return value;
+    }
+    
+    /**
+     * The cached value, or null when absent or expired.
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && System.nanoTime() - entry.loadedAt < ttlNanos ? entry.value : null;
+    }
+    
+    public void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+        if (entries.size() > maxEntries) {
+            trim();
+        }
+    }
+    
+    public void invalidate(K key) {
+        invalidatedAt.put(key, version.incrementAndGet());
+        entries.remove(key);
+        if (invalidatedAt.size() > maxEntries) {
+            // Forgetting per-key versions only costs loads in flight their store
+            forgetInvalidations(version.get());
+        }
+    }
+    
+    public void clear() {
+        forgetInvalidations(version.incrementAndGet());
+        entries.clear();
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    private boolean invalidatedSince(K key, long stamp) {
+        return clearedAt.get() > stamp || invalidatedAt.getOrDefault(key, 0L) > stamp;
+    }
+    
+    // Replace per-key versions up to mark with one cache-wide mark, set first
+    private void forgetInvalidations(long mark) {
+        clearedAt.accumulateAndGet(mark, Math::max);
+        invalidatedAt.values().removeIf(invalidated -> invalidated <= mark);
+    }
+    
+    private void trim() {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> now - entry.loadedAt >= ttlNanos);
+            if (entries.size() > maxEntries) {
+                int target = maxEntries - maxEntries / 10;
+                Iterator<K> keys = entries.keySet().iterator();
+                while (entries.size() > target && keys.hasNext()) {
+                    keys.next();
+                    keys.remove();
+                }
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+    
+    private record Entry<V>(V value, long loadedAt) {
+    }
+}
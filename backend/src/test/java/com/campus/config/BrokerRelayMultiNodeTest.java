@@ -0,0 +1,247 @@
+package com.campus.config;
+
+import com.campus.model.User;
+import com.campus.security.CustomUserDetailsService;
+import com.campus.security.JwtTokenProvider;
+import com.campus.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two application nodes relaying to one embedded Artemis broker. Topic
+ * broadcasts and /user destinations published on one node must reach
+ * clients connected to the other.
+ */
+class BrokerRelayMultiNodeTest {
+    
+    private static final long DEPARTMENT_ID = 1L;
+    private static final int THROUGHPUT_MESSAGES = 2_000;
+    
+    private static EmbeddedActiveMQ broker;
+    private static int brokerPort;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    
+    private final List<StompSession> sessions = new ArrayList<>();
+    
+    @BeforeAll
+    static void start() throws Exception {
+        brokerPort = freePort();
+        Configuration configuration = new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("stomp", "tcp://localhost:" + brokerPort + "?protocols=STOMP");
+        broker = new EmbeddedActiveMQ().setConfiguration(configuration);
+        broker.start();
+        
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+    
+    @AfterAll
+    static void stop() throws Exception {
+        nodeA.close();
+        nodeB.close();
+        broker.stop();
+    }
+    
+    @AfterEach
+    void disconnect() {
+        sessions.forEach(StompSession::disconnect);
+    }
+    
+    @Test
+    void topicBroadcastReachesOtherNode() throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        StompSession alice = connect(nodeA, 1L);
+        subscribe(alice, "/topic/department/" + DEPARTMENT_ID + "/chat", received::offer);
+        
+        template(nodeB).convertAndSend("/topic/department/" + DEPARTMENT_ID + "/chat", "from node B");
+        
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("from node B");
+    }
+    
+    @Test
+    void userDestinationResolvesAcrossNodes() throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        StompSession bob = connect(nodeB, 2L);
+        subscribe(bob, "/user/queue/messages", received::offer);
+        
+        // Node A has no session for user 2 and rebroadcasts to the node that does
+        template(nodeA).convertAndSendToUser("2", "/queue/messages", "from node A");
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("from node A");
+        
+        // Registry broadcasts make the remote user visible to node A as well
+        SimpUserRegistry registryA = nodeA.getBean(SimpUserRegistry.class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (registryA.getUser("2") == null && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+        }
+        assertThat(registryA.getUser("2")).isNotNull();
+        assertThat(registryA.getUser("2").hasSessions()).isTrue();
+    }
+    
+    @Test
+    void crossNodeThroughput() throws Exception {
+        CountDownLatch done = new CountDownLatch(THROUGHPUT_MESSAGES);
+        StompSession carol = connect(nodeB, 3L);
+        subscribe(carol, "/user/queue/messages", message -> done.countDown());
+        
+        SimpMessagingTemplate template = template(nodeA);
+        long start = System.nanoTime();
+        for (int i = 0; i < THROUGHPUT_MESSAGES; i++) {
+            template.convertAndSendToUser("3", "/queue/messages", "message " + i);
+        }
+        assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        
+        System.out.printf("Relayed %d user messages across nodes in %d ms (%d msg/s)%n",
+                THROUGHPUT_MESSAGES, elapsedMs, THROUGHPUT_MESSAGES * 1000L / elapsedMs);
+    }
+    
+    private StompSession connect(ConfigurableApplicationContext node, Long userId) throws Exception {
+        WebSocketStompClient client = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new StringMessageConverter());
+        
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + userId);
+        int port = ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+        StompSession session = client.connectAsync("http://localhost:" + port + "/ws", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() { }).get(10, TimeUnit.SECONDS);
+        session.setAutoReceipt(true);
+        sessions.add(session);
+        return session;
+    }
+    
+    /** Subscribes and waits for the broker's receipt, so nothing sent afterwards is missed. */
+    private void subscribe(StompSession session, String destination, Consumer<String> onMessage) throws Exception {
+        CountDownLatch subscribed = new CountDownLatch(1);
+        StompSession.Subscription subscription = session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+            
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                onMessage.accept((String) payload);
+            }
+        });
+        subscription.addReceiptTask(subscribed::countDown);
+        assertThat(subscribed.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+    
+    private SimpMessagingTemplate template(ConfigurableApplicationContext node) {
+        return node.getBean(SimpMessagingTemplate.class);
+    }
+    
+    /** Starts a node and waits until its system session to the broker is up. */
+    private static ConfigurableApplicationContext startNode() throws Exception {
+        CountDownLatch brokerAvailable = new CountDownLatch(1);
+        ConfigurableApplicationContext node = new SpringApplicationBuilder(RelayNode.class)
+                .properties(
+                        "server.port=0",
+                        "app.websocket.relay.enabled=true",
+                        "app.websocket.relay.host=localhost",
+                        "app.websocket.relay.port=" + brokerPort)
+                .listeners((ApplicationListener<ApplicationEvent>) event -> {
+                    if (event instanceof BrokerAvailabilityEvent availability && availability.isBrokerAvailable()) {
+                        brokerAvailable.countDown();
+                    }
+                })
+                .run();
+        assertThat(brokerAvailable.await(30, TimeUnit.SECONDS)).isTrue();
+        return node;
+    }
+    
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+    
+    /**
+     * The WebSocket layer of one node, with tokens that are just the user id.
+     */
+    @org.springframework.context.annotation.Configuration
+    @EnableAutoConfiguration(exclude = {
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            SecurityAutoConfiguration.class,
+            SecurityFilterAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class
+    })
+    @Import({WebSocketConfig.class, WebSocketSessionRegistry.class})
+    static class RelayNode {
+        
+        @Bean
+        JwtTokenProvider jwtTokenProvider() {
+            JwtTokenProvider provider = mock(JwtTokenProvider.class);
+            for (long userId = 1; userId <= 3; userId++) {
+                Claims claims = mock(Claims.class);
+                when(claims.getSubject()).thenReturn(Long.toString(userId));
+                when(provider.verify(Long.toString(userId))).thenReturn(Optional.of(claims));
+            }
+            return provider;
+        }
+        
+        @Bean
+        CustomUserDetailsService customUserDetailsService() {
+            CustomUserDetailsService service = mock(CustomUserDetailsService.class);
+            for (long userId = 1; userId <= 3; userId++) {
+                when(service.loadUserById(userId)).thenReturn(new UserPrincipal(userId, "user" + userId + "@campus.test",
+                        "User " + userId, User.Role.STUDENT, DEPARTMENT_ID, true, LocalDateTime.now()));
+            }
+            return service;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.campus.service;
+
+import com.campus.dto.AttendanceDTO;
+import com.campus.dto.AttendanceReportDTO;
+import com.campus.model.Attendance;
+import com.campus.model.AttendanceSummary;
+import com.campus.model.Department;
+import com.campus.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The attendance read endpoints must cost a fixed number of statements no
+ * matter how many students, markers or records they return.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import({AttendanceService.class, AttendanceSummaryService.class})
+class AttendanceQueryCountTest {
+    
+    private static final int STUDENTS = 40;
+    private static final int FACULTY = 4;
+    private static final String[] SUBJECTS = {"Maths", "Physics", "Chemistry"};
+    private static final LocalDate JANUARY = LocalDate.of(2026, 1, 1);
+    private static final LocalDate MARCH = LocalDate.of(2026, 3, 1);
+    
+    @Autowired
+    private AttendanceService attendanceService;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @MockBean
+    private NotificationFanoutService notificationFanoutService;
+    
+    private Statistics statistics;
+    private Department department;
+    private List<User> students;
+    private List<User> faculty;
+    
+    @BeforeEach
+    void seed() {
+        department = entityManager.persist(department());
+        faculty = new ArrayList<>();
+        for (int i = 0; i < FACULTY; i++) {
+            faculty.add(entityManager.persist(user("faculty" + i, User.Role.FACULTY, null)));
+        }
+        students = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            students.add(entityManager.persist(user("student" + i, User.Role.STUDENT, String.format("R%03d", i))));
+        }
+        
+        // Raw rows in January and March, February only as a summary
+        for (LocalDate month : List.of(JANUARY, MARCH)) {
+            for (int day = 0; day < 5; day++) {
+                for (int s = 0; s < SUBJECTS.length; s++) {
+                    for (int i = 0; i < STUDENTS; i++) {
+                        entityManager.persist(attendance(students.get(i), faculty.get(s % FACULTY),
+                                month.plusDays(day), SUBJECTS[s], i % 3));
+                    }
+                }
+            }
+        }
+        for (User student : students) {
+            for (String subject : SUBJECTS) {
+                entityManager.persist(new AttendanceSummary(null, student.getId(), subject,
+                        LocalDate.of(2026, 2, 1), 15L, 3L, 2L));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+    
+    @Test
+    void attendanceByDateIsOneQuery() {
+        List<AttendanceDTO> records = attendanceService.getAttendanceByDate(JANUARY, department.getId());
+        
+        assertThat(records).hasSize(STUDENTS * SUBJECTS.length);
+        assertThat(records).allSatisfy(record -> assertThat(record.getMarkedByName()).isNotNull());
+        assertStatements(1);
+    }
+    
+    @Test
+    void studentAttendanceIsOneQuery() {
+        Long studentId = students.get(0).getId();
+        
+        assertThat(attendanceService.getStudentAttendance(studentId, null, null))
+                .hasSize(2 * 5 * SUBJECTS.length);
+        assertStatements(1);
+        
+        statistics.clear();
+        assertThat(attendanceService.getStudentAttendance(studentId, MARCH, MARCH.plusDays(1)))
+                .hasSize(2 * SUBJECTS.length);
+        assertStatements(1);
+    }
+    
+    @Test
+    void facultyHistoryIsOneQuery() {
+        Long facultyId = faculty.get(0).getId();
+        
+        List<AttendanceReportDTO> history = attendanceService.getFacultyAttendanceHistory(
+                facultyId, department.getId(), JANUARY, MARCH.plusDays(30), null);
+        
+        // One class per day for the only subject this faculty member teaches
+        assertThat(history).hasSize(2 * 5);
+        assertThat(history).allSatisfy(summary -> assertThat(summary.getTotalClasses()).isEqualTo(STUDENTS));
+        assertStatements(1);
+    }
+    
+    @Test
+    void departmentReportReadsSummaryAndPartialMonths() {
+        List<AttendanceReportDTO> report = attendanceService.getAttendanceReport(
+                department.getId(), JANUARY.plusDays(2), MARCH.plusDays(20));
+        
+        assertThat(report).hasSize(STUDENTS * SUBJECTS.length);
+        // Three raw days in January, 20 summarised in February, five raw days in March
+        assertThat(report).allSatisfy(row -> assertThat(row.getTotalClasses()).isEqualTo(3 + 20 + 5));
+        // February from the summary, January and March from raw rows
+        assertStatements(3);
+    }
+    
+    private void assertStatements(long expected) {
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(expected);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+    
+    private Department department() {
+        Department department = new Department();
+        department.setName("Computer Science");
+        department.setCode("CS");
+        return department;
+    }
+    
+    private User user(String name, User.Role role, String rollNumber) {
+        User user = new User();
+        user.setEmail(name + "@campus.test");
+        user.setPassword("secret");
+        user.setName(name);
+        user.setRole(role);
+        user.setDepartment(department);
+        user.setRollNumber(rollNumber);
+        return user;
+    }
+    
+    private Attendance attendance(User student, User markedBy, LocalDate date, String subject, int status) {
+        Attendance attendance = new Attendance();
+        attendance.setStudent(student);
+        attendance.setMarkedBy(markedBy);
+        attendance.setDate(date);
+        attendance.setSubject(subject);
+        attendance.setStatus(Attendance.AttendanceStatus.values()[status]);
+        return attendance;
+    }
+}
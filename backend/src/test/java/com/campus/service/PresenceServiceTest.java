@@ -0,0 +1,133 @@
+package com.campus.service;
+
+import com.campus.dto.PresenceUpdateDTO;
+import com.campus.dto.TypingRequest;
+import com.campus.model.User;
+import com.campus.security.StompPrincipal;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PresenceServiceTest {
+    
+    private static final int SESSIONS = 10_000;
+    private static final int DEPARTMENTS = 20;
+    
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final ChatPermissionService chatPermissionService = mock(ChatPermissionService.class);
+    private final SimpUserRegistry userRegistry = mock(SimpUserRegistry.class);
+    
+    /**
+     * 10k sessions connect, half of them type, then all disconnect. Each
+     * phase must be coalesced into one update per department per tick.
+     */
+    @Test
+    void coalescesTenThousandSessions() {
+        PresenceService presence = new PresenceService(messagingTemplate, chatPermissionService, userRegistry, false, 5000);
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < SESSIONS; i++) {
+            presence.onConnected(connected("s" + i, principal(i)));
+        }
+        long connectMs = elapsedMs(start);
+        
+        start = System.nanoTime();
+        presence.tick();
+        long tickMs = elapsedMs(start);
+        verify(messagingTemplate, times(DEPARTMENTS))
+                .convertAndSend(anyString(), any(PresenceUpdateDTO.class));
+        assertThat(presence.getOnlineUsers(0L)).hasSize(SESSIONS / DEPARTMENTS);
+        
+        start = System.nanoTime();
+        for (int i = 0; i < SESSIONS; i += 2) {
+            StompPrincipal principal = principal(i);
+            presence.typing(principal, new TypingRequest(principal.departmentId(), null, true));
+        }
+        presence.tick();
+        long typingMs = elapsedMs(start);
+        
+        start = System.nanoTime();
+        for (int i = 0; i < SESSIONS; i++) {
+            presence.onDisconnected(disconnected("s" + i, principal(i)));
+        }
+        presence.tick();
+        long disconnectMs = elapsedMs(start);
+        
+        assertThat(presence.getOnlineUsers(0L)).isEmpty();
+        System.out.printf("Presence with %d sessions: connect %d ms, first tick %d ms, typing %d ms, disconnect %d ms%n",
+                SESSIONS, connectMs, tickMs, typingMs, disconnectMs);
+    }
+    
+    @Test
+    void keepsUserOnlineWhileConnectedToAnotherNode() {
+        PresenceService presence = new PresenceService(messagingTemplate, chatPermissionService, userRegistry, true, 5000);
+        StompPrincipal principal = principal(1);
+        SimpUser remote = mock(SimpUser.class);
+        when(remote.hasSessions()).thenReturn(true);
+        when(userRegistry.getUser("1")).thenReturn(remote);
+        
+        presence.onConnected(connected("s1", principal));
+        presence.tick();
+        reset(messagingTemplate);
+        
+        // Last local session closes while another node still reports one
+        presence.onDisconnected(disconnected("s1", principal));
+        presence.tick();
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(PresenceUpdateDTO.class));
+        assertThat(presence.isOnline(1L)).isTrue();
+        
+        // The other node's session goes too
+        when(userRegistry.getUser("1")).thenReturn(null);
+        presence.tick();
+        ArgumentCaptor<PresenceUpdateDTO> update = ArgumentCaptor.forClass(PresenceUpdateDTO.class);
+        verify(messagingTemplate, atLeastOnce())
+                .convertAndSend(eq("/topic/department/" + principal.departmentId() + "/presence"), update.capture());
+        assertThat(update.getValue().getOffline()).isEqualTo(List.of(1L));
+        assertThat(presence.isOnline(1L)).isFalse();
+    }
+    
+    private StompPrincipal principal(int i) {
+        return new StompPrincipal((long) i, "User " + i, User.Role.STUDENT, (long) (i % DEPARTMENTS));
+    }
+    
+    private SessionConnectedEvent connected(String sessionId, StompPrincipal principal) {
+        return new SessionConnectedEvent(this, message(sessionId), principal);
+    }
+    
+    private SessionDisconnectEvent disconnected(String sessionId, StompPrincipal principal) {
+        return new SessionDisconnectEvent(this, message(sessionId), sessionId, CloseStatus.NORMAL, principal);
+    }
+    
+    private Message<byte[]> message(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+    
+    private long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
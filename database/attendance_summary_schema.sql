@@ -0,0 +1,19 @@
+-- Monthly attendance counts per student and subject, maintained by AttendanceSummaryService.
+-- Rebuilt from the attendance table on startup when empty.
+
+CREATE TABLE attendance_monthly_summary (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    student_id BIGINT NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    month_start DATE NOT NULL,
+    present_count BIGINT NOT NULL DEFAULT 0,
+    absent_count BIGINT NOT NULL DEFAULT 0,
+    late_count BIGINT NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_attendance_summary (student_id, subject, month_start)
+);
+
+INSERT INTO attendance_monthly_summary (student_id, subject, month_start, present_count, absent_count, late_count)
+SELECT student_id, COALESCE(subject, ''), DATE_FORMAT(date, '%Y-%m-01'),
+       SUM(status = 'PRESENT'), SUM(status = 'ABSENT'), SUM(status = 'LATE')
+FROM attendance
+GROUP BY student_id, COALESCE(subject, ''), DATE_FORMAT(date, '%Y-%m-01');
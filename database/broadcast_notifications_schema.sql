@@ -0,0 +1,34 @@
+-- Department broadcast notifications (fan-out on read)
+
+-- One row per department-wide announcement / study material notification
+CREATE TABLE broadcast_notifications (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    department_id BIGINT NOT NULL,
+    target_role VARCHAR(20),
+    title VARCHAR(500) NOT NULL,
+    message TEXT NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    reference_id BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (department_id) REFERENCES departments(id) ON DELETE CASCADE,
+    INDEX idx_broadcast_dept_id (department_id, id),
+    INDEX idx_broadcast_dept_created (department_id, created_at)
+);
+
+-- Per-user read watermark over broadcast ids
+CREATE TABLE notification_watermarks (
+    user_id BIGINT PRIMARY KEY,
+    last_read_broadcast_id BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Broadcasts read individually above the watermark
+CREATE TABLE broadcast_reads (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    broadcast_id BIGINT NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (broadcast_id) REFERENCES broadcast_notifications(id) ON DELETE CASCADE,
+    UNIQUE KEY unique_broadcast_read (user_id, broadcast_id)
+);
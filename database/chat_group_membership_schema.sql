@@ -0,0 +1,10 @@
+-- One membership row per user and group chat (ChatService.joinGroup relies on it).
+-- One-to-one rows have no department_id, so the key does not constrain them.
+
+DELETE cp FROM chat_participants cp
+JOIN chat_participants kept
+  ON kept.user_id = cp.user_id AND kept.chat_type = cp.chat_type
+ AND kept.department_id = cp.department_id AND kept.id < cp.id
+WHERE cp.chat_type <> 'ONE_TO_ONE';
+
+ALTER TABLE chat_participants ADD UNIQUE KEY uk_chat_group_member (user_id, chat_type, department_id);
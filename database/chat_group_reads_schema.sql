@@ -0,0 +1,25 @@
+-- Per-group message sequence numbers and per-user read watermarks for group chats.
+-- Unread count for a user = chat_group_sequences.last_seq - chat_group_reads.last_read_seq;
+-- rows start at last_seq when a user is created or moves department; a user without one
+-- (e.g. bulk-imported) counts as caught up until they first mark the group read.
+-- ChatService numbers existing group messages on startup when chat_group_sequences is empty.
+
+ALTER TABLE chat_messages ADD COLUMN group_seq BIGINT NULL;
+
+CREATE TABLE chat_group_sequences (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    department_id BIGINT NOT NULL,
+    chat_type ENUM('ONE_TO_ONE', 'DEPARTMENT_GROUP', 'FACULTY_STUDENT_GROUP') NOT NULL,
+    last_seq BIGINT NOT NULL,
+    UNIQUE KEY uk_chat_group_sequence (department_id, chat_type)
+);
+
+CREATE TABLE chat_group_reads (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    department_id BIGINT NOT NULL,
+    chat_type ENUM('ONE_TO_ONE', 'DEPARTMENT_GROUP', 'FACULTY_STUDENT_GROUP') NOT NULL,
+    last_read_seq BIGINT NOT NULL,
+    UNIQUE KEY uk_chat_group_read (user_id, department_id, chat_type),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
@@ -0,0 +1,7 @@
+-- Full-text index for chat search (GET /api/chat/search). Apply once, in a maintenance window:
+-- adding the first FULLTEXT index rebuilds chat_messages and blocks writes to it until done.
+-- InnoDB keeps the index current as messages are saved. To rebuild it from the table (e.g. after
+-- changing innodb_ft_min_token_size), drop and re-add it, again in a maintenance window.
+-- Words shorter than innodb_ft_min_token_size (default 3) are not indexed.
+
+ALTER TABLE chat_messages ADD FULLTEXT INDEX ft_chat_message (message);
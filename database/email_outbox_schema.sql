@@ -0,0 +1,19 @@
+-- Outbound email queue, drained by EmailOutboxDispatcher
+
+CREATE TABLE email_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    to_address VARCHAR(255) NOT NULL,
+    subject VARCHAR(500) NOT NULL,
+    body TEXT,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_by VARCHAR(36),
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP NULL,
+    INDEX idx_email_outbox_due (status, next_attempt_at)
+);
+
+-- Existing installations: dispatch runs on every node claim their batch before sending
+-- ALTER TABLE email_outbox ADD COLUMN claimed_by VARCHAR(36) AFTER next_attempt_at;
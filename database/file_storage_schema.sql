@@ -0,0 +1,8 @@
+-- Reference counts for content-addressed uploads (FileStorageService)
+
+CREATE TABLE stored_blobs (
+    hash CHAR(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL DEFAULT 1,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
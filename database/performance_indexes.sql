@@ -4,6 +4,14 @@
 CREATE INDEX idx_user_email ON `users`(`email`);
 CREATE INDEX idx_user_department ON `users`(`department_id`);
 CREATE INDEX idx_user_role ON `users`(`role`);
+CREATE INDEX idx_user_name ON `users`(`name`);
+CREATE INDEX idx_user_roll_number ON `users`(`roll_number`);
+CREATE INDEX idx_user_role_created 
+ON `users`(`role`, `created_at`);
+CREATE INDEX idx_user_dept_created 
+ON `users`(`department_id`, `created_at`);
+CREATE INDEX idx_user_profile_picture ON `users`(`profile_picture`);
+CREATE INDEX idx_user_updated ON `users`(`updated_at`);
 
 -- Announcement indexes
 CREATE INDEX idx_announcement_dept_date 
@@ -16,6 +24,10 @@ CREATE INDEX idx_chat_sender_receiver
 ON `chat_messages`(`sender_id`, `receiver_id`, `created_at`);
 CREATE INDEX idx_chat_created 
 ON `chat_messages`(`created_at`);
+CREATE INDEX idx_chat_sender_receiver_id 
+ON `chat_messages`(`sender_id`, `receiver_id`, `id`);
+CREATE INDEX idx_chat_dept_type_id 
+ON `chat_messages`(`department_id`, `chat_type`, `id`);
 CREATE INDEX idx_chat_participant_user 
 ON `chat_participants`(`user_id`);
 CREATE INDEX idx_chat_participant_dept 